@@ -2,6 +2,7 @@
 
 # Gatewayz Banking System - JAR Builder
 # This script creates executable JARs for both console and JavaFX versions
+# Requires JDK 21 or newer (virtual threads)
 
 echo "🏦 Gatewayz Banking System - JAR Builder"
 echo "========================================="
@@ -21,7 +22,9 @@ echo "------------------------------"
 # Compile console version
 javac -d build/classes \
     src/com/banking/model/*.java \
+    src/com/banking/persistence/*.java \
     src/com/banking/service/*.java \
+    src/com/banking/server/*.java \
     src/com/banking/BankingApp.java
 
 if [ $? -eq 0 ]; then
@@ -65,7 +68,9 @@ else
     javac --module-path "$JAVAFX_PATH" --add-modules javafx.controls,javafx.fxml \
         -d build/classes \
         src/com/banking/model/*.java \
+        src/com/banking/persistence/*.java \
         src/com/banking/service/*.java \
+        src/com/banking/server/*.java \
         src/com/banking/BankingApp.java \
         src/com/banking/BankingAppFX.java
     
@@ -89,5 +94,6 @@ ls -la dist/
 echo ""
 echo "🚀 To run:"
 echo "   Console: java -jar dist/GatewayzBanking-Console.jar"
+echo "   Server:  java -cp dist/GatewayzBanking-Console.jar com.banking.server.BankServer [port]"
 echo "   JavaFX:  See run-javafx.sh or run-javafx.bat"
 echo ""
@@ -1,6 +1,7 @@
 #!/bin/bash
 
 # Gatewayz Banking System - JavaFX Launcher
+# Requires JDK 21 or newer (virtual threads)
 JAVAFX_PATH="/Users/srivardhanjakkani/Desktop/code+/java/javafx-sdk-21.0.9/lib"
 
 echo "🏦 Starting Gatewayz Banking System..."
@@ -9,7 +10,9 @@ echo "🏦 Starting Gatewayz Banking System..."
 javac --module-path "$JAVAFX_PATH" --add-modules javafx.controls,javafx.fxml -d bin \
     src/com/banking/*.java \
     src/com/banking/model/*.java \
-    src/com/banking/service/*.java 2>/dev/null
+    src/com/banking/persistence/*.java \
+    src/com/banking/service/*.java \
+    src/com/banking/server/*.java 2>/dev/null
 
 # Run
 java --module-path "$JAVAFX_PATH" --add-modules javafx.controls,javafx.fxml -cp bin com.banking.BankingAppFX
@@ -2,6 +2,12 @@ package com.banking;
 
 import com.banking.model.*;
 import com.banking.service.BankService;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.*;
 
 /**
@@ -9,6 +15,7 @@ import java.util.*;
  * Console-based banking application
  */
 public class BankingApp {
+    private static final int HISTORY_PAGE_SIZE = 1000;
     private static BankService bankService;
     private static Scanner scanner;
     
@@ -48,6 +55,9 @@ public class BankingApp {
                     viewAllAccounts();
                     break;
                 case 8:
+                    exportStatement();
+                    break;
+                case 9:
                     running = false;
                     System.out.println("\nThank you for using Gatewayz Banking System!");
                     break;
@@ -57,6 +67,7 @@ public class BankingApp {
         }
         
         scanner.close();
+        bankService.close();
     }
     
     private static void displayMenu() {
@@ -70,7 +81,8 @@ public class BankingApp {
         System.out.println("5. Check Balance");
         System.out.println("6. View Transaction History");
         System.out.println("7. View All Accounts");
-        System.out.println("8. Exit");
+        System.out.println("8. Export Statement");
+        System.out.println("9. Exit");
         System.out.println("=".repeat(40));
     }
     
@@ -105,7 +117,7 @@ public class BankingApp {
             Account account = bankService.createAccount(accountNumber, name, accountType);
             System.out.println("\n✅ Account created successfully!");
             System.out.println(account);
-        } catch (IllegalArgumentException e) {
+        } catch (IllegalArgumentException | IllegalStateException e) {
             System.out.println("\n❌ Error: " + e.getMessage());
         }
     }
@@ -179,18 +191,56 @@ public class BankingApp {
             return;
         }
         
-        List<Transaction> transactions = bankService.getTransactionHistory(accountNumber);
+        // Printed page by page, so a long history is never held in memory at once
+        int total = bankService.getTransactionCount(accountNumber);
         
-        if (transactions.isEmpty()) {
+        if (total == 0) {
             System.out.println("\nNo transactions found for this account.");
         } else {
             System.out.println("\nAccount: " + account.getAccountHolderName() + " (" + accountNumber + ")");
             System.out.println("-".repeat(80));
-            for (Transaction transaction : transactions) {
-                System.out.println(transaction);
+            for (int position = 0; position < total; position += HISTORY_PAGE_SIZE) {
+                for (Transaction transaction : bankService.getTransactionHistory(accountNumber, position,
+                        HISTORY_PAGE_SIZE)) {
+                    System.out.println(transaction);
+                }
             }
             System.out.println("-".repeat(80));
-            System.out.println("Total Transactions: " + transactions.size());
+            System.out.println("Total Transactions: " + total);
+        }
+    }
+    
+    private static void exportStatement() {
+        System.out.println("\n--- Export Statement ---");
+        System.out.print("Enter Account Number: ");
+        String accountNumber = scanner.nextLine().trim();
+        
+        if (bankService.getAccount(accountNumber) == null) {
+            System.out.println("\n❌ Account not found.");
+            return;
+        }
+        
+        System.out.println("\nFormats:");
+        System.out.println("1. CSV");
+        System.out.println("2. Fixed-width text");
+        StatementFormat format = getIntInput("Select format: ") == 2
+                ? StatementFormat.FIXED_WIDTH : StatementFormat.CSV;
+        
+        LocalDate fromDate = getDateInput("From date (yyyy-MM-dd, blank for the beginning): ");
+        LocalDate toDate = getDateInput("To date (yyyy-MM-dd, blank for today): ");
+        LocalDateTime from = fromDate == null ? null : fromDate.atStartOfDay();
+        LocalDateTime to = toDate == null ? null : toDate.plusDays(1).atStartOfDay().minusNanos(1);
+        
+        String defaultFile = "statement-" + accountNumber + (format == StatementFormat.CSV ? ".csv" : ".txt");
+        System.out.print("Output file [" + defaultFile + "]: ");
+        String fileName = scanner.nextLine().trim();
+        Path file = Paths.get(fileName.isEmpty() ? defaultFile : fileName);
+        
+        try {
+            long rows = bankService.exportStatement(accountNumber, from, to, format, file);
+            System.out.println("\n✅ Statement written: " + rows + " transactions to " + file.toAbsolutePath());
+        } catch (UncheckedIOException e) {
+            System.out.println("\n❌ Error: " + e.getCause().getMessage());
         }
     }
     
@@ -222,6 +272,21 @@ public class BankingApp {
         }
     }
     
+    /**
+     * A date, or null if the input is left blank
+     */
+    private static LocalDate getDateInput(String prompt) {
+        while (true) {
+            try {
+                System.out.print(prompt);
+                String input = scanner.nextLine().trim();
+                return input.isEmpty() ? null : LocalDate.parse(input);
+            } catch (DateTimeParseException e) {
+                System.out.println("❌ Invalid input. Please enter a date like 2026-01-31.");
+            }
+        }
+    }
+    
     private static double getDoubleInput(String prompt) {
         while (true) {
             try {
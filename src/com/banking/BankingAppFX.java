@@ -2,11 +2,15 @@ package com.banking;
 
 import com.banking.model.*;
 import com.banking.service.BankService;
+import com.banking.service.ChangeListener;
+import javafx.animation.AnimationTimer;
 import javafx.application.Application;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+import javafx.collections.ObservableListBase;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
+import javafx.scene.Node;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
@@ -17,8 +21,21 @@ import javafx.scene.text.FontWeight;
 import javafx.stage.Stage;
 
 import java.time.format.DateTimeFormatter;
-import java.util.Collection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 /**
  * BankingAppFX - JavaFX GUI Application for Gatewayz Banking System
@@ -30,6 +47,27 @@ public class BankingAppFX extends Application {
     private BorderPane mainLayout;
     private VBox contentArea;
     private Label statusLabel;
+    private ProgressBar progressBar;
+    private Button cancelButton;
+    private ExecutorService background;
+    private Task<?> activeLoad;
+    
+    // The service once opened, whichever of the load and stop() comes
+    // last closes it
+    private final AtomicReference<BankService> openedService = new AtomicReference<>();
+    private volatile boolean stopped;
+    
+    // Accounts changed since the last pulse, added to on posting threads;
+    // once per frame they are handed to the views that follow changes
+    private final Set<String> changedAccounts = ConcurrentHashMap.newKeySet();
+    private final List<Consumer<Set<String>>> liveViews = new ArrayList<>();
+    
+    // Rows fetched per page, how close to a page's edge the neighbouring
+    // page is requested, and how many pages either side of the one on
+    // screen stay loaded
+    private static final int PAGE_SIZE = 500;
+    private static final int PREFETCH_ROWS = 100;
+    private static final int KEEP_PAGES = 4;
     
     // Color scheme
     private static final String PRIMARY_COLOR = "#2c3e50";
@@ -40,7 +78,8 @@ public class BankingAppFX extends Application {
     
     @Override
     public void start(Stage primaryStage) {
-        bankService = new BankService();
+        // Every service call runs here, never on the FX thread
+        background = Executors.newVirtualThreadPerTaskExecutor();
         
         // Create main layout
         mainLayout = new BorderPane();
@@ -64,14 +103,31 @@ public class BankingAppFX extends Application {
         scrollPane.setStyle("-fx-background-color: transparent; -fx-background: " + BACKGROUND_COLOR + ";");
         mainLayout.setCenter(scrollPane);
         
-        // Status bar
+        // Status bar, with progress and cancel for background loads
         statusLabel = new Label("Welcome to Gatewayz Banking System");
-        statusLabel.setStyle("-fx-background-color: " + PRIMARY_COLOR + "; -fx-text-fill: white; -fx-padding: 10;");
+        statusLabel.setStyle("-fx-text-fill: white;");
         statusLabel.setMaxWidth(Double.MAX_VALUE);
-        mainLayout.setBottom(statusLabel);
-        
-        // Show dashboard by default
-        showDashboard();
+        HBox.setHgrow(statusLabel, Priority.ALWAYS);
+        progressBar = new ProgressBar();
+        progressBar.setPrefWidth(160);
+        cancelButton = new Button("Cancel");
+        cancelButton.setOnAction(e -> cancelLoad());
+        showLoadControls(false);
+        HBox statusBar = new HBox(10, statusLabel, progressBar, cancelButton);
+        statusBar.setAlignment(Pos.CENTER_LEFT);
+        statusBar.setStyle("-fx-background-color: " + PRIMARY_COLOR + "; -fx-padding: 10;");
+        mainLayout.setBottom(statusBar);
+        
+        // Open the data in the background (replaying a long journal takes a
+        // while), then show the dashboard
+        sidebar.setDisable(true);
+        contentArea.getChildren().add(createSectionTitle("Loading accounts..."));
+        runInBackground("Loading accounts and transaction history...", null, this::openService, service -> {
+            bankService = service;
+            followChanges();
+            sidebar.setDisable(false);
+            showDashboard();
+        });
         
         // Create scene
         Scene scene = new Scene(mainLayout, 1100, 700);
@@ -83,6 +139,39 @@ public class BankingAppFX extends Application {
         primaryStage.show();
     }
     
+    @Override
+    public void stop() {
+        // Let postings in flight finish, then write a final snapshot so the
+        // next start has no journal to replay
+        stopped = true;
+        cancelLoad();
+        background.shutdown();
+        try {
+            background.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Still loading after the wait: openService closes it when done
+        BankService service = openedService.getAndSet(null);
+        if (service != null) {
+            service.close();
+        }
+    }
+    
+    /**
+     * Open the service (on a background thread); if the application was
+     * stopped meanwhile and stop() has already given up on it, close it
+     * here so the journal is not left open
+     */
+    private BankService openService() {
+        BankService service = new BankService();
+        openedService.set(service);
+        if (stopped && openedService.compareAndSet(service, null)) {
+            service.close();
+        }
+        return service;
+    }
+    
     private VBox createHeader() {
         VBox header = new VBox();
         header.setStyle("-fx-background-color: " + PRIMARY_COLOR + ";");
@@ -168,22 +257,41 @@ public class BankingAppFX extends Application {
     }
     
     private void showDashboard() {
-        contentArea.getChildren().clear();
+        clearContent();
         
         Label title = createSectionTitle("Dashboard");
         
-        // Stats cards
-        HBox statsBox = new HBox(20);
-        statsBox.setAlignment(Pos.CENTER);
-        
-        Collection<Account> accounts = bankService.getAllAccounts();
-        int totalAccounts = accounts.size();
-        double totalBalance = accounts.stream().mapToDouble(Account::getBalance).sum();
+        // Stats cards, read from the service's running totals rather than
+        // by scanning the accounts, and refreshed on every change
+        VBox accountsCard = createStatCard("Total Accounts", "", SECONDARY_COLOR);
+        VBox depositsCard = createStatCard("Total Deposits", "", SUCCESS_COLOR);
+        VBox exposureCard = createStatCard("Overdraft Exposure", "", ERROR_COLOR);
+        VBox overdrawnCard = createStatCard("Overdrawn Accounts", "", "#e67e22");
         
-        VBox accountsCard = createStatCard("Total Accounts", String.valueOf(totalAccounts), SECONDARY_COLOR);
-        VBox balanceCard = createStatCard("Total Balance", String.format("$%.2f", totalBalance), SUCCESS_COLOR);
-        
-        statsBox.getChildren().addAll(accountsCard, balanceCard);
+        HBox statsBox = new HBox(20, accountsCard, depositsCard);
+        statsBox.setAlignment(Pos.CENTER);
+        HBox exposureBox = new HBox(20, exposureCard, overdrawnCard);
+        exposureBox.setAlignment(Pos.CENTER);
+        
+        Label byTypeLabel = new Label();
+        byTypeLabel.setFont(Font.font("Arial", 14));
+        byTypeLabel.setStyle("-fx-text-fill: #7f8c8d;");
+        
+        Runnable refresh = () -> {
+            AccountTotals totals = bankService.getAccountTotals();
+            statValue(accountsCard).setText(String.valueOf(totals.getAccountCount()));
+            statValue(depositsCard).setText(String.format("$%.2f", totals.getTotalDeposits()));
+            statValue(exposureCard).setText(String.format("$%.2f", totals.getOverdraftExposure()));
+            statValue(overdrawnCard).setText(String.valueOf(totals.getNegativeBalanceAccounts()));
+            StringBuilder byType = new StringBuilder();
+            for (Map.Entry<String, Long> entry : totals.getAccountsByType().entrySet()) {
+                byType.append(byType.length() == 0 ? "" : "   |   ")
+                    .append(entry.getKey()).append(": ").append(entry.getValue());
+            }
+            byTypeLabel.setText(byType.toString());
+        };
+        refresh.run();
+        liveViews.add(changed -> refresh.run());
         
         // Quick actions
         Label quickActionsLabel = new Label("Quick Actions");
@@ -199,10 +307,14 @@ public class BankingAppFX extends Application {
         
         quickActions.getChildren().addAll(quickDeposit, quickWithdraw, quickTransfer);
         
-        contentArea.getChildren().addAll(title, statsBox, quickActionsLabel, quickActions);
+        contentArea.getChildren().addAll(title, statsBox, exposureBox, byTypeLabel, quickActionsLabel, quickActions);
         updateStatus("Dashboard loaded");
     }
     
+    private static Label statValue(VBox card) {
+        return (Label) card.getChildren().get(0);
+    }
+    
     private VBox createStatCard(String label, String value, String color) {
         VBox card = new VBox(10);
         card.setAlignment(Pos.CENTER);
@@ -241,7 +353,7 @@ public class BankingAppFX extends Application {
     }
     
     private void showCreateAccount() {
-        contentArea.getChildren().clear();
+        clearContent();
         
         Label title = createSectionTitle("Create New Account");
         
@@ -277,16 +389,15 @@ public class BankingAppFX extends Application {
             if (type.contains("Savings")) accountType = "savings";
             else if (type.contains("Checking")) accountType = "checking";
             
-            try {
-                Account account = bankService.createAccount(accountNumber, name, accountType);
+            String chosenType = accountType;
+            runInBackground("Creating account " + accountNumber + "...", submitBtn,
+                    () -> bankService.createAccount(accountNumber, name, chosenType), account -> {
                 showAlert(Alert.AlertType.INFORMATION, "Success", 
                     "Account created successfully!\n" + account.toString());
                 accountNumberField.clear();
                 nameField.clear();
                 updateStatus("Account " + accountNumber + " created successfully");
-            } catch (IllegalArgumentException ex) {
-                showAlert(Alert.AlertType.ERROR, "Error", ex.getMessage());
-            }
+            });
         });
         
         VBox formBox = new VBox(20, form, submitBtn);
@@ -300,7 +411,7 @@ public class BankingAppFX extends Application {
     }
     
     private void showDeposit() {
-        contentArea.getChildren().clear();
+        clearContent();
         
         Label title = createSectionTitle("Deposit Money");
         
@@ -324,21 +435,26 @@ public class BankingAppFX extends Application {
                 return;
             }
             
+            double amount;
             try {
-                double amount = Double.parseDouble(amountStr);
-                if (bankService.deposit(accountNumber, amount)) {
-                    Account account = bankService.getAccount(accountNumber);
+                amount = Double.parseDouble(amountStr);
+            } catch (NumberFormatException ex) {
+                showAlert(Alert.AlertType.ERROR, "Error", "Please enter a valid amount");
+                return;
+            }
+            runInBackground("Depositing $" + amount + "...", submitBtn,
+                    () -> bankService.deposit(accountNumber, amount) ? bankService.getAccount(accountNumber).getBalance() : null,
+                    balance -> {
+                if (balance != null) {
                     showAlert(Alert.AlertType.INFORMATION, "Success", 
                         String.format("Deposited $%.2f successfully!\nNew Balance: $%.2f", 
-                            amount, account.getBalance()));
+                            amount, balance));
                     amountField.clear();
                     updateStatus("Deposit of $" + amount + " completed");
                 } else {
                     showAlert(Alert.AlertType.ERROR, "Error", "Account not found");
                 }
-            } catch (NumberFormatException ex) {
-                showAlert(Alert.AlertType.ERROR, "Error", "Please enter a valid amount");
-            }
+            });
         });
         
         VBox formBox = createFormBox(form, submitBtn);
@@ -347,7 +463,7 @@ public class BankingAppFX extends Application {
     }
     
     private void showWithdraw() {
-        contentArea.getChildren().clear();
+        clearContent();
         
         Label title = createSectionTitle("Withdraw Money");
         
@@ -371,21 +487,26 @@ public class BankingAppFX extends Application {
                 return;
             }
             
+            double amount;
             try {
-                double amount = Double.parseDouble(amountStr);
-                if (bankService.withdraw(accountNumber, amount)) {
-                    Account account = bankService.getAccount(accountNumber);
+                amount = Double.parseDouble(amountStr);
+            } catch (NumberFormatException ex) {
+                showAlert(Alert.AlertType.ERROR, "Error", "Please enter a valid amount");
+                return;
+            }
+            runInBackground("Withdrawing $" + amount + "...", submitBtn,
+                    () -> bankService.withdraw(accountNumber, amount) ? bankService.getAccount(accountNumber).getBalance() : null,
+                    balance -> {
+                if (balance != null) {
                     showAlert(Alert.AlertType.INFORMATION, "Success", 
                         String.format("Withdrawn $%.2f successfully!\nNew Balance: $%.2f", 
-                            amount, account.getBalance()));
+                            amount, balance));
                     amountField.clear();
                     updateStatus("Withdrawal of $" + amount + " completed");
                 } else {
                     showAlert(Alert.AlertType.ERROR, "Error", "Withdrawal failed. Check account number and balance.");
                 }
-            } catch (NumberFormatException ex) {
-                showAlert(Alert.AlertType.ERROR, "Error", "Please enter a valid amount");
-            }
+            });
         });
         
         VBox formBox = createFormBox(form, submitBtn);
@@ -394,7 +515,7 @@ public class BankingAppFX extends Application {
     }
     
     private void showTransfer() {
-        contentArea.getChildren().clear();
+        clearContent();
         
         Label title = createSectionTitle("Transfer Money");
         
@@ -422,9 +543,16 @@ public class BankingAppFX extends Application {
                 return;
             }
             
+            double amount;
             try {
-                double amount = Double.parseDouble(amountStr);
-                if (bankService.transfer(fromAccount, toAccount, amount)) {
+                amount = Double.parseDouble(amountStr);
+            } catch (NumberFormatException ex) {
+                showAlert(Alert.AlertType.ERROR, "Error", "Please enter a valid amount");
+                return;
+            }
+            runInBackground("Transferring $" + amount + "...", submitBtn,
+                    () -> bankService.transfer(fromAccount, toAccount, amount), transferred -> {
+                if (transferred) {
                     showAlert(Alert.AlertType.INFORMATION, "Success", 
                         String.format("Transferred $%.2f from %s to %s successfully!", 
                             amount, fromAccount, toAccount));
@@ -433,9 +561,7 @@ public class BankingAppFX extends Application {
                 } else {
                     showAlert(Alert.AlertType.ERROR, "Error", "Transfer failed. Check account numbers and balance.");
                 }
-            } catch (NumberFormatException ex) {
-                showAlert(Alert.AlertType.ERROR, "Error", "Please enter a valid amount");
-            }
+            });
         });
         
         VBox formBox = createFormBox(form, submitBtn);
@@ -444,7 +570,7 @@ public class BankingAppFX extends Application {
     }
     
     private void showCheckBalance() {
-        contentArea.getChildren().clear();
+        clearContent();
         
         Label title = createSectionTitle("Check Balance");
         
@@ -471,6 +597,9 @@ public class BankingAppFX extends Application {
         
         resultBox.getChildren().addAll(balanceLabel, accountInfoLabel);
         
+        // Keeps the balance shown up to date with the account last checked
+        AtomicReference<Consumer<Set<String>>> following = new AtomicReference<>();
+        
         Button submitBtn = createSubmitButton("Check Balance");
         submitBtn.setOnAction(e -> {
             String accountNumber = accountNumberField.getText().trim();
@@ -480,17 +609,27 @@ public class BankingAppFX extends Application {
                 return;
             }
             
-            Account account = bankService.getAccount(accountNumber);
-            if (account != null) {
-                balanceLabel.setText(String.format("$%.2f", account.getBalance()));
-                accountInfoLabel.setText(String.format("%s - %s (%s)", 
-                    account.getAccountNumber(), account.getAccountHolderName(), account.getAccountType()));
-                resultBox.setVisible(true);
-                updateStatus("Balance checked for account " + accountNumber);
-            } else {
-                showAlert(Alert.AlertType.ERROR, "Error", "Account not found");
-                resultBox.setVisible(false);
-            }
+            runInBackground("Looking up account " + accountNumber + "...", submitBtn,
+                    () -> bankService.getAccount(accountNumber), account -> {
+                liveViews.remove(following.getAndSet(null));
+                if (account != null) {
+                    Consumer<Set<String>> view = changed -> {
+                        if (changed.contains(accountNumber)) {
+                            balanceLabel.setText(String.format("$%.2f", account.getBalance()));
+                        }
+                    };
+                    following.set(view);
+                    liveViews.add(view);
+                    balanceLabel.setText(String.format("$%.2f", account.getBalance()));
+                    accountInfoLabel.setText(String.format("%s - %s (%s)", 
+                        account.getAccountNumber(), account.getAccountHolderName(), account.getAccountType()));
+                    resultBox.setVisible(true);
+                    updateStatus("Balance checked for account " + accountNumber);
+                } else {
+                    showAlert(Alert.AlertType.ERROR, "Error", "Account not found");
+                    resultBox.setVisible(false);
+                }
+            });
         });
         
         VBox formBox = createFormBox(form, submitBtn);
@@ -499,7 +638,7 @@ public class BankingAppFX extends Application {
     }
     
     private void showTransactionHistory() {
-        contentArea.getChildren().clear();
+        clearContent();
         
         Label title = createSectionTitle("Transaction History");
         
@@ -558,6 +697,9 @@ public class BankingAppFX extends Application {
         
         table.getColumns().addAll(idCol, typeCol, amountCol, balanceCol, descCol);
         
+        // New transactions of the account searched for are appended as they post
+        AtomicReference<Consumer<Set<String>>> following = new AtomicReference<>();
+        
         searchBtn.setOnAction(e -> {
             String accountNumber = accountNumberField.getText().trim();
             if (accountNumber.isEmpty()) {
@@ -565,15 +707,16 @@ public class BankingAppFX extends Application {
                 return;
             }
             
-            List<Transaction> transactions = bankService.getTransactionHistory(accountNumber);
-            ObservableList<Transaction> data = FXCollections.observableArrayList(transactions);
-            table.setItems(data);
-            
-            if (transactions.isEmpty()) {
-                updateStatus("No transactions found for account " + accountNumber);
-            } else {
-                updateStatus("Found " + transactions.size() + " transactions for account " + accountNumber);
-            }
+            PagedLoader<Transaction> loader = new PagedLoader<>(table, "transactions for account " + accountNumber,
+                    from -> new Page<>(bankService.getTransactionHistory(accountNumber, from, PAGE_SIZE),
+                            bankService.getTransactionCount(accountNumber)));
+            Consumer<Set<String>> view = changed -> {
+                if (changed.contains(accountNumber)) {
+                    loader.loadAppended();
+                }
+            };
+            liveViews.remove(following.getAndSet(view));
+            liveViews.add(view);
         });
         
         VBox container = new VBox(20, searchBox, table);
@@ -585,7 +728,7 @@ public class BankingAppFX extends Application {
     }
     
     private void showAllAccounts() {
-        contentArea.getChildren().clear();
+        clearContent();
         
         Label title = createSectionTitle("All Accounts");
         
@@ -625,25 +768,382 @@ public class BankingAppFX extends Application {
         
         table.getColumns().addAll(numberCol, nameCol, typeCol, balanceCol);
         
-        Collection<Account> accounts = bankService.getAllAccounts();
-        ObservableList<Account> data = FXCollections.observableArrayList(accounts);
-        table.setItems(data);
+        PagedLoader<Account> loader = new PagedLoader<>(table, "accounts",
+                from -> new Page<>(bankService.getAccounts(from, PAGE_SIZE), bankService.getAllAccounts().size()));
         
-        Button refreshBtn = createSubmitButton("Refresh");
-        refreshBtn.setOnAction(e -> {
-            Collection<Account> refreshedAccounts = bankService.getAllAccounts();
-            ObservableList<Account> refreshedData = FXCollections.observableArrayList(refreshedAccounts);
-            table.setItems(refreshedData);
-            updateStatus("Account list refreshed - " + refreshedAccounts.size() + " accounts");
+        // Rows are in handle order, so a changed account's row is found by
+        // its handle; only that row is redrawn. New accounts are appended
+        liveViews.add(changed -> {
+            for (String accountNumber : changed) {
+                int handle = bankService.getAccountHandle(accountNumber);
+                if (handle >= loader.size()) {
+                    loader.loadAppended();
+                } else {
+                    loader.refreshRow(handle);
+                }
+            }
         });
         
-        VBox container = new VBox(20, table, refreshBtn);
+        VBox container = new VBox(20, table);
         container.setPadding(new Insets(20));
         container.setAlignment(Pos.CENTER);
         container.setStyle("-fx-background-color: white; -fx-background-radius: 10; -fx-effect: dropshadow(gaussian, rgba(0,0,0,0.1), 10, 0, 0, 2);");
         
         contentArea.getChildren().addAll(title, container);
-        updateStatus("Viewing " + accounts.size() + " accounts");
+    }
+    
+    /**
+     * Run a service call on a background thread and hand its result to
+     * onSuccess on the FX thread; the trigger (if any) is disabled until
+     * the call returns, and a failure is shown as an error alert
+     */
+    private <T> void runInBackground(String busyMessage, Node trigger, Callable<T> work, Consumer<T> onSuccess) {
+        Task<T> task = new Task<T>() {
+            @Override
+            protected T call() throws Exception {
+                return work.call();
+            }
+        };
+        if (trigger != null) {
+            trigger.setDisable(true);
+        }
+        task.setOnSucceeded(e -> {
+            if (trigger != null) {
+                trigger.setDisable(false);
+            }
+            onSuccess.accept(task.getValue());
+        });
+        task.setOnFailed(e -> {
+            if (trigger != null) {
+                trigger.setDisable(false);
+            }
+            Throwable error = task.getException();
+            statusLabel.setText("Error: " + error.getMessage());
+            showAlert(Alert.AlertType.ERROR, "Error", error.getMessage());
+        });
+        statusLabel.setText(busyMessage);
+        background.execute(task);
+    }
+    
+    /**
+     * Leave the current view: stop its page load and remove its nodes
+     */
+    private void clearContent() {
+        cancelLoad();
+        liveViews.clear();
+        contentArea.getChildren().clear();
+    }
+    
+    /**
+     * Subscribe to the service's change events and apply them once per
+     * frame: however many postings touch an account between two pulses,
+     * its views are updated once
+     */
+    private void followChanges() {
+        bankService.subscribe(new ChangeListener() {
+            @Override
+            public void accountOpened(long lsn, Account account) {
+                changedAccounts.add(account.getAccountNumber());
+            }
+            
+            @Override
+            public void transactionPosted(long lsn, Transaction transaction) {
+                changedAccounts.add(transaction.getAccountNumber());
+            }
+        });
+        new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                if (changedAccounts.isEmpty()) {
+                    return;
+                }
+                // An account is announced just before it can be looked up;
+                // such numbers wait for the next pulse
+                Set<String> changed = new HashSet<>();
+                List<String> notYetVisible = new ArrayList<>();
+                for (Iterator<String> it = changedAccounts.iterator(); it.hasNext(); ) {
+                    String accountNumber = it.next();
+                    it.remove();
+                    if (bankService.getAccountHandle(accountNumber) < 0) {
+                        notYetVisible.add(accountNumber);
+                    } else {
+                        changed.add(accountNumber);
+                    }
+                }
+                changedAccounts.addAll(notYetVisible);
+                if (changed.isEmpty()) {
+                    return;
+                }
+                for (Consumer<Set<String>> view : new ArrayList<>(liveViews)) {
+                    view.accept(changed);
+                }
+            }
+        }.start();
+    }
+    
+    private void cancelLoad() {
+        if (activeLoad != null) {
+            activeLoad.cancel();
+        }
+    }
+    
+    private void showLoadControls(boolean visible) {
+        progressBar.setVisible(visible);
+        progressBar.setManaged(visible);
+        cancelButton.setVisible(visible);
+        cancelButton.setManaged(visible);
+    }
+    
+    /**
+     * One page of rows and the size of the whole list when it was read
+     */
+    private static final class Page<T> {
+        final List<T> rows;
+        final long total;
+        
+        Page(List<T> rows, long total) {
+            this.rows = rows;
+            this.total = total;
+        }
+    }
+    
+    /**
+     * Fetches the rows starting at a position; runs on a background thread
+     */
+    private interface PageSource<T> {
+        Page<T> fetch(int from) throws Exception;
+    }
+    
+    /**
+     * PagedLoader - Shows a long list in a table, fetching pages by index as the user scrolls
+     * The table is backed by a list as long as the whole result (the total
+     * the source reports), so the scrollbar covers every row from the
+     * start. When a row of a page not loaded yet is laid out, that page
+     * (and the neighbouring one near its edge) is fetched in the background;
+     * until then its rows are blank. Pages more than KEEP_PAGES away from
+     * the one on screen are dropped again, so memory stays bounded however
+     * far the user scrolls. The status bar shows the page in flight; Cancel
+     * stops it and scrolling back to it retries. Rows added to the list
+     * later are picked up by loadAppended, quietly.
+     */
+    private final class PagedLoader<T> {
+        private final TableView<T> table;
+        private final PagedList rows;
+        private final String noun;
+        private final PageSource<T> source;
+        private final Map<Integer, List<T>> pages = new HashMap<>();
+        private final Map<Integer, Task<Page<T>>> inFlight = new HashMap<>();
+        private int size;
+        private int viewportPage;
+        private boolean appendedWhileLoading;
+        
+        PagedLoader(TableView<T> table, String noun, PageSource<T> source) {
+            this.table = table;
+            this.rows = new PagedList();
+            this.noun = noun;
+            this.source = source;
+            table.setItems(rows);
+            table.setRowFactory(view -> new TableRow<T>() {
+                @Override
+                public void updateIndex(int index) {
+                    super.updateIndex(index);
+                    if (index >= 0) {
+                        // Not during layout: starting a load updates the status bar
+                        Platform.runLater(() -> request(index));
+                    }
+                }
+            });
+            fetchPage(0, false);
+        }
+        
+        int size() {
+            return size;
+        }
+        
+        /**
+         * Redraw one row whose item changed in place
+         */
+        void refreshRow(int index) {
+            T item = index < size ? rows.get(index) : null;
+            if (item != null) {
+                rows.replaced(index, index + 1, Collections.singletonList(item));
+            }
+        }
+        
+        /**
+         * The list grew; fetch the page the new rows start in, which also
+         * brings the new total
+         */
+        void loadAppended() {
+            int page = size / PAGE_SIZE;
+            if (inFlight.containsKey(page)) {
+                appendedWhileLoading = true;
+            } else {
+                fetchPage(page, true);
+            }
+        }
+        
+        /**
+         * A row was laid out: make sure its page is loaded (and the next or
+         * previous one when it is near an edge)
+         */
+        private void request(int index) {
+            // A new search replaces the rows; this loader is then done
+            if (table.getItems() != rows || index >= size) {
+                return;
+            }
+            int page = index / PAGE_SIZE;
+            viewportPage = page;
+            loadPage(page);
+            int offset = index % PAGE_SIZE;
+            if (offset >= PAGE_SIZE - PREFETCH_ROWS) {
+                loadPage(page + 1);
+            } else if (offset < PREFETCH_ROWS) {
+                loadPage(page - 1);
+            }
+        }
+        
+        /**
+         * Fetch a page unless it is loaded in full or already on its way
+         * (a page read just before rows were added to it counts as missing)
+         */
+        private void loadPage(int page) {
+            if (page < 0 || (long) page * PAGE_SIZE >= size || inFlight.containsKey(page)) {
+                return;
+            }
+            List<T> loaded = pages.get(page);
+            if (loaded == null || loaded.size() < Math.min(PAGE_SIZE, size - page * PAGE_SIZE)) {
+                fetchPage(page, false);
+            }
+        }
+        
+        private void fetchPage(int page, boolean quiet) {
+            int from = page * PAGE_SIZE;
+            Task<Page<T>> task = new Task<Page<T>>() {
+                @Override
+                protected Page<T> call() throws Exception {
+                    return source.fetch(from);
+                }
+            };
+            task.setOnSucceeded(e -> {
+                inFlight.remove(page);
+                Page<T> result = task.getValue();
+                resize((int) Math.min(result.total, Integer.MAX_VALUE));
+                if (!result.rows.isEmpty()) {
+                    pages.put(page, result.rows);
+                    int to = Math.min(size, from + result.rows.size());
+                    rows.replaced(from, to, Collections.nCopies(to - from, null));
+                }
+                dropFarPages();
+                if (!quiet) {
+                    finish(task, size == 0 ? "No " + noun
+                            : String.format("Loaded rows %,d-%,d of %,d %s", from + 1,
+                                    from + result.rows.size(), size, noun));
+                }
+                if (appendedWhileLoading) {
+                    appendedWhileLoading = false;
+                    loadAppended();
+                }
+            });
+            task.setOnFailed(e -> {
+                inFlight.remove(page);
+                finish(task, "Error: " + task.getException().getMessage());
+                showAlert(Alert.AlertType.ERROR, "Error", task.getException().getMessage());
+            });
+            task.setOnCancelled(e -> {
+                inFlight.remove(page);
+                finish(task, String.format("Stopped loading %s at row %,d - scroll to retry", noun, from + 1));
+            });
+            
+            inFlight.put(page, task);
+            if (!quiet) {
+                activeLoad = task;
+                progressBar.setProgress(ProgressBar.INDETERMINATE_PROGRESS);
+                showLoadControls(true);
+                statusLabel.setText(String.format("Loading %s from row %,d...", noun, from + 1));
+            }
+            background.execute(task);
+        }
+        
+        /**
+         * Take on a new total: new rows start out blank
+         */
+        private void resize(int total) {
+            if (total > size) {
+                int from = size;
+                size = total;
+                rows.added(from, total);
+            } else if (total < size) {
+                List<T> removed = new ArrayList<>(rows.subList(total, size));
+                size = total;
+                rows.removed(total, removed);
+                pages.keySet().removeIf(page -> (long) page * PAGE_SIZE >= total);
+            }
+        }
+        
+        private void dropFarPages() {
+            for (Iterator<Map.Entry<Integer, List<T>>> it = pages.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<Integer, List<T>> entry = it.next();
+                int page = entry.getKey();
+                if (Math.abs(page - viewportPage) > KEEP_PAGES) {
+                    it.remove();
+                    int from = page * PAGE_SIZE;
+                    int to = Math.min(size, from + entry.getValue().size());
+                    if (from < to) {
+                        rows.replaced(from, to, entry.getValue().subList(0, to - from));
+                    }
+                }
+            }
+        }
+        
+        private void finish(Task<Page<T>> task, String message) {
+            if (activeLoad == task) {
+                activeLoad = null;
+                showLoadControls(false);
+            }
+            statusLabel.setText(message);
+        }
+        
+        /**
+         * The table's items: size rows, those of pages not loaded are null
+         */
+        private final class PagedList extends ObservableListBase<T> {
+            @Override
+            public T get(int index) {
+                if (index < 0 || index >= size) {
+                    throw new IndexOutOfBoundsException("Row " + index + " of " + size);
+                }
+                List<T> page = pages.get(index / PAGE_SIZE);
+                int offset = index % PAGE_SIZE;
+                return page != null && offset < page.size() ? page.get(offset) : null;
+            }
+            
+            @Override
+            public int size() {
+                return size;
+            }
+            
+            void added(int from, int to) {
+                beginChange();
+                nextAdd(from, to);
+                endChange();
+            }
+            
+            void removed(int from, List<T> removed) {
+                beginChange();
+                nextRemove(from, removed);
+                endChange();
+            }
+            
+            /**
+             * Rows from..to now read differently; removed is what they held
+             */
+            void replaced(int from, int to, List<T> removed) {
+                beginChange();
+                nextReplace(from, to, removed);
+                endChange();
+            }
+        }
     }
     
     // Helper methods
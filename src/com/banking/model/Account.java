@@ -3,12 +3,47 @@ package com.banking.model;
 /**
  * Account Interface - Demonstrates Interface concept
  * Defines the contract that all account types must follow
+ *
+ * Balances are held as fixed-point cents; the double methods convert
+ * at the boundary
  */
 public interface Account {
+    /**
+     * Returned by withdrawCents when the withdrawal is refused
+     */
+    long INSUFFICIENT_FUNDS = Long.MIN_VALUE;
+    
     void deposit(double amount);
     boolean withdraw(double amount);
     double getBalance();
     String getAccountNumber();
     String getAccountHolderName();
     String getAccountType();
+    
+    /**
+     * Annual interest rate in percent; 0 for accounts that earn none
+     */
+    default double getInterestRate() {
+        return 0;
+    }
+    
+    /**
+     * Add cents atomically; returns the balance right after this deposit
+     */
+    long depositCents(long cents);
+    
+    /**
+     * Take cents atomically if the account allows it; returns the balance
+     * right after this withdrawal, or INSUFFICIENT_FUNDS
+     */
+    long withdrawCents(long cents);
+    
+    long getBalanceCents();
+    
+    /**
+     * Apply an already validated balance change without limit checks
+     * Used when replaying the journal and when undoing a posting; returns
+     * the balance right after the change
+     */
+    long adjustBalanceCents(long deltaCents);
 }
@@ -0,0 +1,84 @@
+package com.banking.model;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * AccountTotals - Point-in-time totals over all accounts
+ * Read from running aggregates, so taking one costs the same with ten
+ * accounts or ten million
+ */
+public class AccountTotals {
+    private final Map<String, Long> accountsByType;
+    private final long depositsCents;
+    private final long overdraftCents;
+    private final long negativeBalanceAccounts;
+    
+    public AccountTotals(Map<String, Long> accountsByType, long depositsCents, long overdraftCents,
+                         long negativeBalanceAccounts) {
+        this.accountsByType = Collections.unmodifiableMap(accountsByType);
+        this.depositsCents = depositsCents;
+        this.overdraftCents = overdraftCents;
+        this.negativeBalanceAccounts = negativeBalanceAccounts;
+    }
+    
+    public long getAccountCount() {
+        long count = 0;
+        for (long typeCount : accountsByType.values()) {
+            count += typeCount;
+        }
+        return count;
+    }
+    
+    /**
+     * Number of accounts per account type, e.g. "Savings" -> 12
+     */
+    public Map<String, Long> getAccountsByType() {
+        return accountsByType;
+    }
+    
+    public long getAccountCount(String accountType) {
+        Long count = accountsByType.get(accountType);
+        return count == null ? 0 : count;
+    }
+    
+    /**
+     * Sum of all positive balances, in cents
+     */
+    public long getTotalDepositsCents() {
+        return depositsCents;
+    }
+    
+    public double getTotalDeposits() {
+        return Money.toAmount(depositsCents);
+    }
+    
+    /**
+     * Sum of the amounts by which accounts are overdrawn, in cents
+     */
+    public long getOverdraftExposureCents() {
+        return overdraftCents;
+    }
+    
+    public double getOverdraftExposure() {
+        return Money.toAmount(overdraftCents);
+    }
+    
+    public long getNegativeBalanceAccounts() {
+        return negativeBalanceAccounts;
+    }
+    
+    /**
+     * Net balance of all accounts (deposits minus overdraft exposure)
+     */
+    public double getTotalBalance() {
+        return Money.toAmount(depositsCents - overdraftCents);
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("Accounts: %d %s | deposits $%.2f | overdrawn: %d accounts, $%.2f",
+            getAccountCount(), accountsByType, getTotalDeposits(), negativeBalanceAccounts,
+            getOverdraftExposure());
+    }
+}
@@ -1,33 +1,60 @@
 package com.banking.model;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 
 /**
  * BankAccount class - Demonstrates Encapsulation
  * All fields are private and accessed via getters/setters
  * Implements Serializable for file persistence
+ *
+ * The balance is a long count of cents updated by compare-and-set, so
+ * deposits and withdrawals are atomic without a lock and allocate nothing
  */
 public class BankAccount implements Account, Serializable {
     private static final long serialVersionUID = 1L;
     
+    // Serialized form is unchanged: the balance is still written as a double
+    private static final ObjectStreamField[] serialPersistentFields = {
+        new ObjectStreamField("accountNumber", String.class),
+        new ObjectStreamField("accountHolderName", String.class),
+        new ObjectStreamField("balance", double.class),
+        new ObjectStreamField("accountType", String.class)
+    };
+    
+    private static final VarHandle BALANCE;
+    
+    static {
+        try {
+            BALANCE = MethodHandles.lookup().findVarHandle(BankAccount.class, "balanceCents", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+    
     // Private fields - Encapsulation
     private String accountNumber;
     private String accountHolderName;
-    private double balance;
+    private volatile long balanceCents;
     private String accountType;
     
     // Constructor
     public BankAccount(String accountNumber, String accountHolderName, String accountType) {
         this.accountNumber = accountNumber;
         this.accountHolderName = accountHolderName;
-        this.balance = 0.0;
+        this.balanceCents = 0;
         this.accountType = accountType;
     }
     
     // Overloaded constructor with initial balance
     public BankAccount(String accountNumber, String accountHolderName, String accountType, double initialBalance) {
         this(accountNumber, accountHolderName, accountType);
-        this.balance = initialBalance;
+        this.balanceCents = Money.toCents(initialBalance);
     }
     
     /**
@@ -36,11 +63,7 @@ public class BankAccount implements Account, Serializable {
      */
     @Override
     public void deposit(double amount) {
-        if (amount > 0) {
-            this.balance += amount;
-        } else {
-            throw new IllegalArgumentException("Deposit amount must be positive");
-        }
+        depositCents(Money.toCents(amount));
     }
     
     /**
@@ -49,20 +72,68 @@ public class BankAccount implements Account, Serializable {
      */
     @Override
     public boolean withdraw(double amount) {
-        if (amount <= 0) {
-            throw new IllegalArgumentException("Withdrawal amount must be positive");
+        return withdrawCents(Money.toCents(amount)) != INSUFFICIENT_FUNDS;
+    }
+    
+    @Override
+    public long depositCents(long cents) {
+        if (cents <= 0) {
+            throw new IllegalArgumentException("Deposit amount must be positive");
         }
-        if (amount > balance) {
-            return false; // Insufficient balance
+        return adjustBalanceCents(cents);
+    }
+    
+    /**
+     * The sufficient-funds check is made against the balance the CAS
+     * replaces, so two racing withdrawals can never overdraw the account
+     */
+    @Override
+    public long withdrawCents(long cents) {
+        if (cents <= 0) {
+            throw new IllegalArgumentException("Withdrawal amount must be positive");
         }
-        this.balance -= amount;
-        return true;
+        long current;
+        do {
+            current = balanceCents;
+            if (cents > current) {
+                return INSUFFICIENT_FUNDS; // Insufficient balance
+            }
+        } while (!compareAndSetBalanceCents(current, current - cents));
+        return current - cents;
+    }
+    
+    /**
+     * A CAS loop rather than getAndAdd, so an overflowing change is
+     * refused before it is applied
+     */
+    @Override
+    public long adjustBalanceCents(long deltaCents) {
+        long current;
+        long updated;
+        do {
+            current = balanceCents;
+            updated = Money.add(current, deltaCents);
+        } while (!compareAndSetBalanceCents(current, updated));
+        return updated;
+    }
+    
+    /**
+     * Atomically replace the balance if it still equals expected
+     * For subclasses that apply their own limit checks
+     */
+    protected final boolean compareAndSetBalanceCents(long expected, long updated) {
+        return BALANCE.compareAndSet(this, expected, updated);
     }
     
     // Getters - Encapsulation principle (controlled access)
     @Override
     public double getBalance() {
-        return balance;
+        return Money.toAmount(balanceCents);
+    }
+    
+    @Override
+    public long getBalanceCents() {
+        return balanceCents;
     }
     
     @Override
@@ -88,6 +159,23 @@ public class BankAccount implements Account, Serializable {
     @Override
     public String toString() {
         return String.format("Account[%s] %s - %s: $%.2f", 
-            accountNumber, accountHolderName, accountType, balance);
+            accountNumber, accountHolderName, accountType, getBalance());
+    }
+    
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("accountNumber", accountNumber);
+        fields.put("accountHolderName", accountHolderName);
+        fields.put("balance", getBalance());
+        fields.put("accountType", accountType);
+        out.writeFields();
+    }
+    
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        accountNumber = (String) fields.get("accountNumber", null);
+        accountHolderName = (String) fields.get("accountHolderName", null);
+        balanceCents = Money.toCents(fields.get("balance", 0.0));
+        accountType = (String) fields.get("accountType", null);
     }
 }
@@ -0,0 +1,16 @@
+package com.banking.model;
+
+/**
+ * BatchMode - What a bulk posting does when one of its transfers fails
+ */
+public enum BatchMode {
+    /**
+     * Apply every transfer or none of them
+     */
+    ALL_OR_NOTHING,
+    
+    /**
+     * Apply every transfer that can be applied; skip the rest
+     */
+    BEST_EFFORT
+}
@@ -0,0 +1,56 @@
+package com.banking.model;
+
+/**
+ * ChangeEvent - One entry of the change feed: an account opening or a transaction
+ * The offset is the entry's position in the feed; a consumer that stores
+ * the offset after the last event it processed resumes there
+ */
+public class ChangeEvent {
+    private final long offset;
+    private final Account account;
+    private final Transaction transaction;
+    
+    public ChangeEvent(long offset, Account account) {
+        this.offset = offset;
+        this.account = account;
+        this.transaction = null;
+    }
+    
+    public ChangeEvent(long offset, Transaction transaction) {
+        this.offset = offset;
+        this.account = null;
+        this.transaction = transaction;
+    }
+    
+    public long getOffset() {
+        return offset;
+    }
+    
+    public boolean isAccountOpened() {
+        return account != null;
+    }
+    
+    /**
+     * The account as opened, or null for a transaction
+     */
+    public Account getAccount() {
+        return account;
+    }
+    
+    /**
+     * The transaction, or null for an account opening; its balanceAfter
+     * is the account's new balance
+     */
+    public Transaction getTransaction() {
+        return transaction;
+    }
+    
+    public String getAccountNumber() {
+        return account != null ? account.getAccountNumber() : transaction.getAccountNumber();
+    }
+    
+    @Override
+    public String toString() {
+        return offset + " " + (account != null ? "OPENED " + account : transaction);
+    }
+}
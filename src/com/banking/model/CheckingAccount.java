@@ -19,19 +19,24 @@ public class CheckingAccount extends BankAccount {
     }
     
     /**
-     * Override withdraw to allow overdraft up to the limit
+     * Override withdrawCents to allow overdraft up to the limit
+     * The limit is checked against the balance the CAS replaces
      */
     @Override
-    public boolean withdraw(double amount) {
-        if (amount <= 0) {
+    public long withdrawCents(long cents) {
+        if (cents <= 0) {
             throw new IllegalArgumentException("Withdrawal amount must be positive");
         }
-        // Allow withdrawal if within overdraft limit
-        if (amount > (getBalance() + overdraftLimit)) {
-            return false; // Exceeds overdraft limit
-        }
-        super.deposit(-amount); // Use deposit with negative amount to bypass balance check
-        return true;
+        long limit = Money.toCents(overdraftLimit);
+        long current;
+        do {
+            current = getBalanceCents();
+            // Allow withdrawal if within overdraft limit
+            if (cents > current + limit) {
+                return INSUFFICIENT_FUNDS; // Exceeds overdraft limit
+            }
+        } while (!compareAndSetBalanceCents(current, current - cents));
+        return current - cents;
     }
     
     public double getOverdraftLimit() {
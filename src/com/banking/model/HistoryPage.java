@@ -0,0 +1,32 @@
+package com.banking.model;
+
+import java.util.List;
+
+/**
+ * HistoryPage - One page of an account's transaction history
+ * Only the transactions on the page are materialized
+ */
+public class HistoryPage {
+    private final List<Transaction> transactions;
+    private final String continuationToken;
+    
+    public HistoryPage(List<Transaction> transactions, String continuationToken) {
+        this.transactions = transactions;
+        this.continuationToken = continuationToken;
+    }
+    
+    public List<Transaction> getTransactions() {
+        return transactions;
+    }
+    
+    /**
+     * Token for the next page, or null when the history is exhausted
+     */
+    public String getContinuationToken() {
+        return continuationToken;
+    }
+    
+    public boolean hasMore() {
+        return continuationToken != null;
+    }
+}
@@ -0,0 +1,105 @@
+package com.banking.model;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * HistoryQuery - One page request against an account's transaction history
+ * Optional time range and transaction-type filters; pass the token from
+ * the previous HistoryPage to continue where it stopped
+ * Setters return this so options can be chained
+ */
+public class HistoryQuery {
+    private String accountNumber;
+    private int pageSize;
+    private String continuationToken;
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private Set<String> transactionTypes;
+    private boolean newestFirst;
+    
+    public HistoryQuery(String accountNumber) {
+        this.accountNumber = accountNumber;
+        this.pageSize = 50;
+        this.transactionTypes = Collections.emptySet();
+    }
+    
+    public String getAccountNumber() {
+        return accountNumber;
+    }
+    
+    public int getPageSize() {
+        return pageSize;
+    }
+    
+    public HistoryQuery setPageSize(int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be at least 1");
+        }
+        this.pageSize = pageSize;
+        return this;
+    }
+    
+    public String getContinuationToken() {
+        return continuationToken;
+    }
+    
+    /**
+     * Continue after the page that returned this token (null starts over)
+     */
+    public HistoryQuery setContinuationToken(String continuationToken) {
+        this.continuationToken = continuationToken;
+        return this;
+    }
+    
+    public LocalDateTime getFrom() {
+        return from;
+    }
+    
+    /**
+     * Only transactions at or after this time (null = no lower bound)
+     * Time bounds assume the clock never went back between postings (see
+     * TransactionLog.findPage)
+     */
+    public HistoryQuery setFrom(LocalDateTime from) {
+        this.from = from;
+        return this;
+    }
+    
+    public LocalDateTime getTo() {
+        return to;
+    }
+    
+    /**
+     * Only transactions at or before this time (null = no upper bound)
+     */
+    public HistoryQuery setTo(LocalDateTime to) {
+        this.to = to;
+        return this;
+    }
+    
+    public Set<String> getTransactionTypes() {
+        return transactionTypes;
+    }
+    
+    /**
+     * Only these types, e.g. DEPOSIT or TRANSFER_OUT (none given = all types)
+     */
+    public HistoryQuery setTransactionTypes(String... transactionTypes) {
+        Set<String> types = new HashSet<>();
+        Collections.addAll(types, transactionTypes);
+        this.transactionTypes = types;
+        return this;
+    }
+    
+    public boolean isNewestFirst() {
+        return newestFirst;
+    }
+    
+    public HistoryQuery setNewestFirst(boolean newestFirst) {
+        this.newestFirst = newestFirst;
+        return this;
+    }
+}
@@ -0,0 +1,52 @@
+package com.banking.model;
+
+/**
+ * Money - Conversions between amounts and fixed-point cents
+ * Balances are kept as whole cents in a long so they add up exactly;
+ * doubles are only used at the edges (user input and display)
+ */
+public final class Money {
+    /**
+     * Largest amount in cents a double still holds exactly (2^53)
+     */
+    public static final long MAX_CENTS = 1L << 53;
+    
+    private Money() {
+    }
+    
+    /**
+     * Amount in dollars to whole cents, rounded half up
+     * NaN, infinities and amounts beyond MAX_CENTS are refused
+     */
+    public static long toCents(double amount) {
+        double cents = amount * 100;
+        if (!(Math.abs(cents) <= MAX_CENTS)) {
+            throw new IllegalArgumentException("Amount out of range");
+        }
+        return Math.round(cents);
+    }
+    
+    /**
+     * balance + delta, refused instead of wrapping around or leaving the
+     * range toCents accepts (transactions carry the balance as an amount)
+     */
+    public static long add(long balanceCents, long deltaCents) {
+        long sum;
+        try {
+            sum = Math.addExact(balanceCents, deltaCents);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Balance out of range");
+        }
+        if (Math.abs(sum) > MAX_CENTS) {
+            throw new IllegalArgumentException("Balance out of range");
+        }
+        return sum;
+    }
+    
+    /**
+     * Whole cents to an amount in dollars
+     */
+    public static double toAmount(long cents) {
+        return cents / 100.0;
+    }
+}
@@ -22,10 +22,13 @@ public class SavingsAccount extends BankAccount {
      * Calculate and add interest to account
      */
     public void addInterest() {
-        double interest = getBalance() * interestRate / 100;
-        deposit(interest);
+        long interest = Math.round(getBalanceCents() * interestRate / 100);
+        if (interest > 0) {
+            depositCents(interest);
+        }
     }
     
+    @Override
     public double getInterestRate() {
         return interestRate;
     }
@@ -0,0 +1,16 @@
+package com.banking.model;
+
+/**
+ * StatementFormat - Layout of an exported account statement
+ */
+public enum StatementFormat {
+    /**
+     * Comma-separated values with a header row
+     */
+    CSV,
+    
+    /**
+     * Text with fixed-width columns, a title and a total line
+     */
+    FIXED_WIDTH
+}
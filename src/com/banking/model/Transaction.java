@@ -1,5 +1,7 @@
 package com.banking.model;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -7,11 +9,24 @@ import java.time.format.DateTimeFormatter;
 /**
  * Transaction class - Stores transaction details
  * Demonstrates File I/O concept (Serializable)
+ *
+ * Ids are kept as a primitive number and only rendered as text
+ * (TXN plus at least five digits) when displayed. Ids in any other
+ * format are kept as given.
  */
 public class Transaction implements Serializable {
     private static final long serialVersionUID = 1L;
+    private static final String ID_PREFIX = "TXN";
+    private static final int ID_WIDTH = 5;
+    private static final DateTimeFormatter DISPLAY_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    
+    /**
+     * transactionNumber of a transaction whose id is not TXN plus a number
+     */
+    public static final long NO_NUMBER = -1;
     
     private String transactionId;
+    private long transactionNumber;
     private String accountNumber;
     private String transactionType;
     private double amount;
@@ -21,7 +36,16 @@ public class Transaction implements Serializable {
     
     public Transaction(String transactionId, String accountNumber, String transactionType, 
                       double amount, double balanceAfter, String description) {
-        this.transactionId = transactionId;
+        this(parseTransactionId(transactionId), accountNumber, transactionType, amount, balanceAfter, description);
+        if (transactionNumber == NO_NUMBER) {
+            this.transactionId = transactionId;
+        }
+    }
+    
+    // Overloaded constructor taking a numeric id from a TransactionIdGenerator
+    public Transaction(long transactionNumber, String accountNumber, String transactionType,
+                      double amount, double balanceAfter, String description) {
+        this.transactionNumber = transactionNumber;
         this.accountNumber = accountNumber;
         this.transactionType = transactionType;
         this.amount = amount;
@@ -30,9 +54,76 @@ public class Transaction implements Serializable {
         this.description = description;
     }
     
+    // Overloaded constructor used when restoring a transaction from storage
+    public Transaction(String transactionId, String accountNumber, String transactionType,
+                      double amount, double balanceAfter, String description, LocalDateTime timestamp) {
+        this(transactionId, accountNumber, transactionType, amount, balanceAfter, description);
+        this.timestamp = timestamp;
+    }
+    
+    // Overloaded constructor used when restoring a numbered transaction from storage
+    public Transaction(long transactionNumber, String accountNumber, String transactionType,
+                      double amount, double balanceAfter, String description, LocalDateTime timestamp) {
+        this(transactionNumber, accountNumber, transactionType, amount, balanceAfter, description);
+        this.timestamp = timestamp;
+    }
+    
+    /**
+     * Text form of a numeric id: TXN followed by at least five digits
+     */
+    public static String formatTransactionId(long transactionNumber) {
+        StringBuilder id = new StringBuilder(ID_PREFIX.length() + 19);
+        return appendTransactionId(id, transactionNumber).toString();
+    }
+    
+    /**
+     * Append the text form of a numeric id without creating a String
+     */
+    public static StringBuilder appendTransactionId(StringBuilder out, long transactionNumber) {
+        out.append(ID_PREFIX);
+        int digits = 1;
+        for (long rest = transactionNumber / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        for (int i = digits; i < ID_WIDTH; i++) {
+            out.append('0');
+        }
+        return out.append(transactionNumber);
+    }
+    
+    /**
+     * Number of an id in the form formatTransactionId produces, else NO_NUMBER
+     */
+    public static long parseTransactionId(String transactionId) {
+        int length = transactionId.length();
+        if (!transactionId.startsWith(ID_PREFIX) || length < ID_PREFIX.length() + ID_WIDTH || length > 22) {
+            return NO_NUMBER;
+        }
+        long number = 0;
+        for (int i = ID_PREFIX.length(); i < length; i++) {
+            char c = transactionId.charAt(i);
+            if (c < '0' || c > '9') {
+                return NO_NUMBER;
+            }
+            number = number * 10 + (c - '0');
+            if (number < 0) {
+                return NO_NUMBER;
+            }
+        }
+        // Extra leading zeros would not survive a round trip
+        return formatTransactionId(number).equals(transactionId) ? number : NO_NUMBER;
+    }
+    
     // Getters
     public String getTransactionId() {
-        return transactionId;
+        return transactionId != null ? transactionId : formatTransactionId(transactionNumber);
+    }
+    
+    /**
+     * Numeric id, or NO_NUMBER when the id is kept as text
+     */
+    public long getTransactionNumber() {
+        return transactionNumber;
     }
     
     public String getAccountNumber() {
@@ -61,9 +152,19 @@ public class Transaction implements Serializable {
     
     @Override
     public String toString() {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
         return String.format("[%s] %s | %s | Amount: $%.2f | Balance: $%.2f | %s",
-            timestamp.format(formatter), transactionId, transactionType, 
+            timestamp.format(DISPLAY_FORMAT), getTransactionId(), transactionType, 
             amount, balanceAfter, description);
     }
+    
+    // Files written before ids were numeric hold the id as text only
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        if (transactionId != null) {
+            transactionNumber = parseTransactionId(transactionId);
+            if (transactionNumber != NO_NUMBER) {
+                transactionId = null;
+            }
+        }
+    }
 }
@@ -0,0 +1,33 @@
+package com.banking.model;
+
+/**
+ * TransferInstruction - One transfer of a bulk posting (see BankService.postBatch)
+ */
+public class TransferInstruction {
+    private final String fromAccountNumber;
+    private final String toAccountNumber;
+    private final double amount;
+    
+    public TransferInstruction(String fromAccountNumber, String toAccountNumber, double amount) {
+        this.fromAccountNumber = fromAccountNumber;
+        this.toAccountNumber = toAccountNumber;
+        this.amount = amount;
+    }
+    
+    public String getFromAccountNumber() {
+        return fromAccountNumber;
+    }
+    
+    public String getToAccountNumber() {
+        return toAccountNumber;
+    }
+    
+    public double getAmount() {
+        return amount;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("%s -> %s $%.2f", fromAccountNumber, toAccountNumber, amount);
+    }
+}
@@ -0,0 +1,17 @@
+package com.banking.model;
+
+/**
+ * TransferResult - Outcome of one transfer in a bulk posting
+ */
+public enum TransferResult {
+    APPLIED,
+    UNKNOWN_ACCOUNT,
+    INVALID_AMOUNT,
+    INSUFFICIENT_FUNDS,
+    
+    /**
+     * Valid, but not applied because another transfer of an
+     * all-or-nothing batch failed
+     */
+    ABORTED
+}
@@ -0,0 +1,60 @@
+package com.banking.persistence;
+
+import java.util.Arrays;
+
+/**
+ * AccountIndex - Ledger record numbers of each account, in posting order
+ * Keyed by the account's dictionary index in the TransactionLog, which is
+ * dense, so the index is just one growable int[] per account (the ledger
+ * holds fewer than 2^31 records). Kept in memory only: appended to as
+ * transactions are posted and rebuilt from the mapped records when the
+ * ledger is opened.
+ */
+class AccountIndex {
+    private static final int INITIAL_ACCOUNTS = 16;
+    private static final int INITIAL_ENTRIES = 8;
+    
+    private int[][] records;
+    private int[] sizes;
+    
+    AccountIndex() {
+        this.records = new int[INITIAL_ACCOUNTS][];
+        this.sizes = new int[INITIAL_ACCOUNTS];
+    }
+    
+    /**
+     * Add a record number to the end of an account's list
+     */
+    void add(int account, int record) {
+        if (account >= records.length) {
+            int capacity = Math.max(records.length * 2, account + 1);
+            records = Arrays.copyOf(records, capacity);
+            sizes = Arrays.copyOf(sizes, capacity);
+        }
+        int[] list = records[account];
+        int size = sizes[account];
+        if (list == null) {
+            list = new int[INITIAL_ENTRIES];
+            records[account] = list;
+        } else if (size == list.length) {
+            list = Arrays.copyOf(list, size + (size >> 1));
+            records[account] = list;
+        }
+        list[size] = record;
+        sizes[account] = size + 1;
+    }
+    
+    /**
+     * Number of records posted to an account
+     */
+    int size(int account) {
+        return account < sizes.length ? sizes[account] : 0;
+    }
+    
+    /**
+     * Record number of the i-th posting to an account (0 = oldest)
+     */
+    int get(int account, int i) {
+        return records[account][i];
+    }
+}
@@ -0,0 +1,170 @@
+package com.banking.persistence;
+
+import com.banking.model.*;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.Arrays;
+
+/**
+ * AccountSlots - Off-heap account state in a memory-mapped file
+ * Balance, overdraft limit, interest rate and kind of every account sit
+ * in a fixed 32-byte slot outside the Java heap; the Account handed out
+ * for a slot (SlotAccount) is a small immutable view holding only the
+ * slot number and the account's names. With millions of accounts the
+ * heap then holds no mutable account state, and balance updates are
+ * compare-and-set operations on the mapped memory.
+ *
+ * The snapshot and journal stay authoritative: the file is rebuilt from
+ * them at startup. sync() forces it and records the journal LSN it
+ * matches, so after a clean close the file holds every balance as of
+ * that LSN and can be read by mapping it.
+ *
+ * File layout: [int magic][int version][long slots][long lsn] padded to
+ * 64 bytes, then slots (little-endian):
+ *   0  long   balance, cents
+ *   8  long   overdraft limit, cents
+ *   16 double interest rate (savings) or overdraft limit (checking)
+ *   24 byte   account kind (RecordCodec)
+ */
+public final class AccountSlots implements Closeable {
+    public static final String FILE = "accounts.slots";
+    static final int SLOT_SIZE = 32;
+    private static final int HEADER_SIZE = 64;
+    private static final int SLOTS_PER_REGION = 1 << 16;
+    private static final long REGION_BYTES = (long) SLOTS_PER_REGION * SLOT_SIZE;
+    private static final int MAGIC = 0x47534C54; // "GSLT"
+    private static final int VERSION = 1;
+    
+    private static final int BALANCE = 0;
+    private static final int OVERDRAFT = 8;
+    private static final int PARAMETER = 16;
+    private static final int KIND = 24;
+    
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class,
+            ByteOrder.LITTLE_ENDIAN);
+    
+    private final FileChannel channel;
+    private volatile MappedByteBuffer[] regions;
+    private int count;
+    
+    /**
+     * Open the slot file in a directory, discarding its previous contents
+     */
+    public AccountSlots(Path directory) throws IOException {
+        this.channel = FileChannel.open(directory.resolve(FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.regions = new MappedByteBuffer[0];
+        writeHeader(-1);
+    }
+    
+    /**
+     * Copy an account's state into a new slot and return the view over it
+     * The source object is not used afterwards
+     */
+    public synchronized Account adopt(Account account) {
+        int slot = count;
+        int region = slot / SLOTS_PER_REGION;
+        if (region == regions.length) {
+            mapRegion(region);
+        }
+        ByteBuffer buffer = regions[region];
+        int offset = offsetOf(slot);
+        byte kind = RecordCodec.accountKind(account);
+        double parameter = RecordCodec.accountParameter(account);
+        buffer.putLong(offset + OVERDRAFT, kind == RecordCodec.KIND_CHECKING ? Money.toCents(parameter) : 0);
+        buffer.putDouble(offset + PARAMETER, parameter);
+        buffer.put(offset + KIND, kind);
+        LONGS.setVolatile(buffer, offset + BALANCE, account.getBalanceCents());
+        count++;
+        return new SlotAccount(this, slot, account.getAccountNumber(), account.getAccountHolderName(),
+                account.getAccountType(), kind);
+    }
+    
+    /**
+     * Number of slots in use
+     */
+    public synchronized int size() {
+        return count;
+    }
+    
+    /**
+     * Force every slot to disk and record the journal LSN they match
+     * Only meaningful while no postings are in flight (e.g. at close)
+     */
+    public synchronized void sync(long lsn) throws IOException {
+        for (MappedByteBuffer region : regions) {
+            region.force();
+        }
+        writeHeader(lsn);
+        channel.force(false);
+    }
+    
+    @Override
+    public synchronized void close() throws IOException {
+        regions = new MappedByteBuffer[0];
+        channel.close();
+    }
+    
+    long getBalanceCents(int slot) {
+        return (long) LONGS.getVolatile(region(slot), offsetOf(slot) + BALANCE);
+    }
+    
+    long addBalanceCents(int slot, long deltaCents) {
+        ByteBuffer region = region(slot);
+        int offset = offsetOf(slot) + BALANCE;
+        long current;
+        long updated;
+        do {
+            current = (long) LONGS.getVolatile(region, offset);
+            updated = Money.add(current, deltaCents);
+        } while (!LONGS.compareAndSet(region, offset, current, updated));
+        return updated;
+    }
+    
+    boolean compareAndSetBalanceCents(int slot, long expected, long updated) {
+        return LONGS.compareAndSet(region(slot), offsetOf(slot) + BALANCE, expected, updated);
+    }
+    
+    long getOverdraftCents(int slot) {
+        return region(slot).getLong(offsetOf(slot) + OVERDRAFT);
+    }
+    
+    double getParameter(int slot) {
+        return region(slot).getDouble(offsetOf(slot) + PARAMETER);
+    }
+    
+    private ByteBuffer region(int slot) {
+        return regions[slot / SLOTS_PER_REGION];
+    }
+    
+    private void mapRegion(int region) {
+        try {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE,
+                    HEADER_SIZE + region * REGION_BYTES, REGION_BYTES);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            MappedByteBuffer[] grown = Arrays.copyOf(regions, region + 1);
+            grown[region] = buffer;
+            regions = grown;
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not grow " + FILE, e);
+        }
+    }
+    
+    private void writeHeader(long lsn) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putLong(count).putLong(lsn);
+        header.clear();
+        channel.write(header, 0);
+    }
+    
+    private static int offsetOf(int slot) {
+        return (slot % SLOTS_PER_REGION) * SLOT_SIZE;
+    }
+}
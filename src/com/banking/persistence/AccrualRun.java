@@ -0,0 +1,79 @@
+package com.banking.persistence;
+
+import java.io.*;
+import java.nio.file.*;
+import java.time.YearMonth;
+
+/**
+ * AccrualRun - Record of the latest interest accrual run (accrual.bin)
+ * Written before the first interest posting of a run and again when all
+ * of them are durable. A run that is still open after a restart is
+ * resumed: the postings it already made are found in the ledger from
+ * ledgerStart on, so no account is credited twice.
+ */
+public class AccrualRun {
+    private static final int MAGIC = 0x47414352; // "GACR"
+    private static final String FILE = "accrual.bin";
+    
+    private final YearMonth period;
+    private final long ledgerStart;
+    private final boolean done;
+    
+    public AccrualRun(YearMonth period, long ledgerStart, boolean done) {
+        this.period = period;
+        this.ledgerStart = ledgerStart;
+        this.done = done;
+    }
+    
+    /**
+     * Read the run record in a directory, or null if no run was ever started
+     */
+    public static AccrualRun load(Path directory) throws IOException {
+        Path file = directory.resolve(FILE);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException(FILE + " is not an accrual run file");
+            }
+            YearMonth period = YearMonth.of(in.readInt(), in.readUnsignedByte());
+            long ledgerStart = in.readLong();
+            return new AccrualRun(period, ledgerStart, in.readBoolean());
+        }
+    }
+    
+    /**
+     * Write the record aside, sync it and rename it into place
+     */
+    public void save(Path directory) throws IOException {
+        Path temp = directory.resolve(FILE + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(temp.toFile());
+             DataOutputStream out = new DataOutputStream(fos)) {
+            out.writeInt(MAGIC);
+            out.writeInt(period.getYear());
+            out.writeByte(period.getMonthValue());
+            out.writeLong(ledgerStart);
+            out.writeBoolean(done);
+            out.flush();
+            fos.getFD().sync();
+        }
+        Files.move(temp, directory.resolve(FILE),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    public YearMonth getPeriod() {
+        return period;
+    }
+    
+    /**
+     * Ledger size when the run started; its postings all come after
+     */
+    public long getLedgerStart() {
+        return ledgerStart;
+    }
+    
+    public boolean isDone() {
+        return done;
+    }
+}
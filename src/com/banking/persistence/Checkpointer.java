@@ -0,0 +1,135 @@
+package com.banking.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Checkpointer - Folds sealed journal segments into a fresh snapshot
+ * Runs on a background thread when the checkpoint interval elapses or the
+ * active journal segment grows past its size limit
+ *
+ * The only work done against live state is the epoch cut (a journal roll).
+ * The new snapshot is built from the previous snapshot files plus the
+ * sealed segments, so the BankService hot path is never paused for it.
+ * The ledger's mapped records up to the cut are forced before any
+ * segment is deleted.
+ */
+public class Checkpointer implements Closeable {
+    private static final long TICK_MILLIS = 1000;
+    
+    private final Path directory;
+    private final Journal journal;
+    private final TransactionLog ledger;
+    private final StorageConfig config;
+    private final Supplier<CompletableFuture<Long>> epochCut;
+    private ScheduledExecutorService scheduler;
+    private volatile long lastCheckpointLsn;
+    private volatile long lastCheckpointNanos;
+    private volatile long checkpointCount;
+    private volatile long lastDurationMillis;
+    
+    /**
+     * @param epochCut rolls the journal at an operation boundary (which
+     *                 also marks the ledger cut) and returns the cut LSN
+     *                 once the sealed segment is durable
+     */
+    public Checkpointer(Path directory, Journal journal, TransactionLog ledger, StorageConfig config,
+                        Supplier<CompletableFuture<Long>> epochCut, long snapshotLsn) {
+        this.directory = directory;
+        this.journal = journal;
+        this.ledger = ledger;
+        this.config = config;
+        this.epochCut = epochCut;
+        this.lastCheckpointLsn = snapshotLsn;
+        this.lastCheckpointNanos = System.nanoTime();
+    }
+    
+    /**
+     * Start checking the interval and size triggers in the background
+     */
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "checkpointer");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::checkTriggers, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Take a checkpoint now; returns the journal LSN the snapshot covers
+     */
+    public synchronized long checkpoint() throws IOException {
+        if (journal.getLastLsn() <= lastCheckpointLsn) {
+            return lastCheckpointLsn;
+        }
+        long started = System.nanoTime();
+        long cutLsn;
+        try {
+            cutLsn = epochCut.get().join();
+        } catch (CompletionException e) {
+            throw new IOException("Could not roll journal", e.getCause());
+        }
+        
+        Snapshot snapshot = Snapshot.load(directory);
+        journal.replaySealed(cutLsn, snapshot);
+        snapshot.write(directory, cutLsn);
+        ledger.checkpoint(cutLsn);
+        journal.deleteSegmentsUpTo(cutLsn);
+        
+        lastCheckpointLsn = cutLsn;
+        lastCheckpointNanos = System.nanoTime();
+        lastDurationMillis = TimeUnit.NANOSECONDS.toMillis(lastCheckpointNanos - started);
+        checkpointCount++;
+        return cutLsn;
+    }
+    
+    public long getLastCheckpointLsn() {
+        return lastCheckpointLsn;
+    }
+    
+    public long getCheckpointCount() {
+        return checkpointCount;
+    }
+    
+    public long getLastDurationMillis() {
+        return lastDurationMillis;
+    }
+    
+    /**
+     * Stop the background thread; an in-flight checkpoint is allowed to finish
+     */
+    @Override
+    public void close() {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private void checkTriggers() {
+        long elapsedSeconds = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - lastCheckpointNanos);
+        boolean due = elapsedSeconds >= config.getCheckpointIntervalSeconds()
+                || journal.getActiveSegmentBytes() >= config.getCheckpointJournalBytes();
+        if (!due) {
+            return;
+        }
+        try {
+            checkpoint();
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Warning: Checkpoint failed - " + e.getMessage());
+        }
+    }
+}
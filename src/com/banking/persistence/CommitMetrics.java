@@ -0,0 +1,67 @@
+package com.banking.persistence;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * CommitMetrics - Counters for journal commits
+ * Tracks how many operations share each fsync and how long callers
+ * wait for their operation to become durable
+ */
+public class CommitMetrics {
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder operations = new LongAdder();
+    private final AtomicLong maxBatchSize = new AtomicLong();
+    private final LongAdder totalLatencyNanos = new LongAdder();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+    
+    void recordBatch(int batchOperations) {
+        batches.increment();
+        operations.add(batchOperations);
+        maxBatchSize.accumulateAndGet(batchOperations, Math::max);
+    }
+    
+    void recordLatency(long nanos) {
+        totalLatencyNanos.add(nanos);
+        maxLatencyNanos.accumulateAndGet(nanos, Math::max);
+    }
+    
+    /**
+     * Number of fsyncs issued for committed operations
+     */
+    public long getBatchCount() {
+        return batches.sum();
+    }
+    
+    public long getCommittedOperations() {
+        return operations.sum();
+    }
+    
+    public double getAverageBatchSize() {
+        long count = batches.sum();
+        return count == 0 ? 0 : (double) operations.sum() / count;
+    }
+    
+    public long getMaxBatchSize() {
+        return maxBatchSize.get();
+    }
+    
+    /**
+     * Average time from commit() until the operation was on disk
+     */
+    public double getAverageCommitLatencyMicros() {
+        long count = operations.sum();
+        return count == 0 ? 0 : totalLatencyNanos.sum() / 1000.0 / count;
+    }
+    
+    public double getMaxCommitLatencyMicros() {
+        return maxLatencyNanos.get() / 1000.0;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("Commits: %d ops in %d batches (avg %.1f, max %d) | latency avg %.0fus, max %.0fus",
+            getCommittedOperations(), getBatchCount(), getAverageBatchSize(), getMaxBatchSize(),
+            getAverageCommitLatencyMicros(), getMaxCommitLatencyMicros());
+    }
+}
@@ -0,0 +1,23 @@
+package com.banking.persistence;
+
+/**
+ * FsyncPolicy - Controls when journal writes are forced to disk
+ * Trades durability of the most recent operations for throughput
+ */
+public enum FsyncPolicy {
+    /**
+     * Force the journal after every committed operation (safest, slowest)
+     */
+    PER_OPERATION,
+    
+    /**
+     * Write and force operations from concurrent callers together;
+     * each caller is acknowledged once the shared fsync completes
+     */
+    GROUP_COMMIT,
+    
+    /**
+     * Force the journal from a background timer at a fixed interval
+     */
+    INTERVAL
+}
@@ -0,0 +1,195 @@
+package com.banking.persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GroupCommitter - Background writer that makes staged journal records durable
+ * Operations committed by concurrent callers are written together and
+ * share a single fsync; every caller is acknowledged once it completes
+ *
+ * Segment rolls travel through the same queue so the cut lands exactly
+ * between the operations committed before and after it
+ */
+class GroupCommitter {
+    private static final long IDLE_POLL_MILLIS = 100;
+    
+    private static class Pending {
+        final byte[] frames;
+        final long lsn;
+        final boolean roll;
+        final CompletableFuture<Long> done;
+        final long submittedNanos;
+        
+        Pending(byte[] frames, long lsn, boolean roll) {
+            this.frames = frames;
+            this.lsn = lsn;
+            this.roll = roll;
+            this.done = new CompletableFuture<>();
+            this.submittedNanos = System.nanoTime();
+        }
+    }
+    
+    private final Journal journal;
+    private final int maxBatchSize;
+    private final long lingerNanos;
+    private final CommitMetrics metrics;
+    private final BlockingQueue<Pending> queue;
+    private final Thread thread;
+    private volatile boolean running;
+    
+    GroupCommitter(Journal journal, StorageConfig config, CommitMetrics metrics) {
+        this.journal = journal;
+        this.maxBatchSize = config.getGroupCommitSize();
+        this.lingerNanos = TimeUnit.MICROSECONDS.toNanos(config.getGroupCommitLingerMicros());
+        this.metrics = metrics;
+        // Bounded so a slow disk pushes back on callers instead of growing the heap
+        this.queue = new ArrayBlockingQueue<>(maxBatchSize * 8);
+        this.running = true;
+        this.thread = new Thread(this::run, "journal-group-commit");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+    
+    /**
+     * Queue the frames of one operation; the future completes once they are on disk
+     * Must be called in LSN order
+     */
+    CompletableFuture<Long> submit(byte[] frames, long lsn) {
+        return enqueue(new Pending(frames, lsn, false));
+    }
+    
+    /**
+     * Queue a segment roll after everything submitted so far
+     */
+    CompletableFuture<Long> submitRoll(long cutLsn) {
+        return enqueue(new Pending(new byte[0], cutLsn, true));
+    }
+    
+    /**
+     * Wait until everything submitted so far is durable
+     */
+    void sync() {
+        enqueue(new Pending(new byte[0], 0, false)).join();
+    }
+    
+    private CompletableFuture<Long> enqueue(Pending pending) {
+        try {
+            queue.put(pending);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pending.done.completeExceptionally(e);
+        }
+        return pending.done;
+    }
+    
+    void shutdown() {
+        running = false;
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private void run() {
+        List<Pending> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, maxBatchSize - 1);
+                
+                // Linger briefly so callers arriving during the window share the fsync
+                long deadline = first.submittedNanos + lingerNanos;
+                while (batch.size() < maxBatchSize) {
+                    long wait = deadline - System.nanoTime();
+                    if (wait <= 0) {
+                        break;
+                    }
+                    Pending next = queue.poll(wait, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    queue.drainTo(batch, maxBatchSize - batch.size());
+                }
+                commitBatch(batch);
+            } catch (InterruptedException e) {
+                // Keep draining until shutdown() asks us to stop
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+    
+    /**
+     * Write the batch with one fsync per run of operations; a roll marker
+     * splits the batch so operations before it stay in the old segment
+     */
+    private void commitBatch(List<Pending> batch) {
+        int start = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            Pending pending = batch.get(i);
+            if (!pending.roll) {
+                continue;
+            }
+            writeRun(batch, start, i);
+            try {
+                journal.rollSegment(pending.lsn);
+                pending.done.complete(pending.lsn);
+            } catch (IOException e) {
+                pending.done.completeExceptionally(e);
+            }
+            start = i + 1;
+        }
+        writeRun(batch, start, batch.size());
+    }
+    
+    private void writeRun(List<Pending> batch, int from, int to) {
+        if (from >= to) {
+            return;
+        }
+        ByteBuffer[] buffers = new ByteBuffer[to - from];
+        int operations = 0;
+        long bytes = 0;
+        for (int i = from; i < to; i++) {
+            byte[] frames = batch.get(i).frames;
+            buffers[i - from] = ByteBuffer.wrap(frames);
+            bytes += frames.length;
+            if (frames.length > 0) {
+                operations++;
+            }
+        }
+        
+        try {
+            journal.writeFrames(buffers, bytes, true);
+        } catch (IOException e) {
+            for (int i = from; i < to; i++) {
+                batch.get(i).done.completeExceptionally(e);
+            }
+            return;
+        }
+        
+        long now = System.nanoTime();
+        if (operations > 0) {
+            metrics.recordBatch(operations);
+        }
+        for (int i = from; i < to; i++) {
+            Pending pending = batch.get(i);
+            if (pending.frames.length > 0) {
+                metrics.recordLatency(now - pending.submittedNanos);
+            }
+            pending.done.complete(pending.lsn);
+        }
+    }
+}
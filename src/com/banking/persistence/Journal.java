@@ -0,0 +1,631 @@
+package com.banking.persistence;
+
+import com.banking.model.*;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Journal - Append-only write-ahead log of BankService mutations
+ * Each mutation is one small checksummed record, so the cost of saving
+ * no longer grows with the size of the ledger
+ *
+ * Each log*() call stages the records of one operation and commits them
+ * together, so concurrent callers never interleave inside an operation.
+ * Under GROUP_COMMIT a background GroupCommitter writes and fsyncs many
+ * operations at once.
+ *
+ * The log is split into numbered segment files. roll() seals the active
+ * segment at an LSN boundary (an epoch cut) so the Checkpointer can fold
+ * sealed segments into a snapshot and delete them.
+ *
+ * Segment layout: [int magic][int codec version] then records
+ * Record layout:  [int length][int crc32][long lsn][byte kind][fields...]
+ * Fields are encoded by RecordCodec; segments written before the header
+ * existed are read as codec version 0. An operation with several
+ * transactions (both legs of a transfer, a bulk posting) is one
+ * multi-leg record, [int count] then each transaction, under one LSN
+ * and one checksum, so replay sees all of it or none of it.
+ */
+public class Journal implements Closeable {
+    private static final byte ACCOUNT_OPENED = 1;
+    private static final byte TRANSACTION_POSTED = 2;
+    private static final byte TRANSACTIONS_POSTED = 3;
+    
+    private static final int SEGMENT_MAGIC = 0x474A524E; // "GJRN"
+    private static final int SEGMENT_HEADER_SIZE = 8;
+    private static final int HEADER_SIZE = 8;
+    private static final int MAX_RECORD_SIZE = 1 << 24;
+    
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String LEGACY_JOURNAL_FILE = "journal.log";
+    
+    /**
+     * Receives records in log order during replay
+     */
+    public interface Listener {
+        void accountOpened(long lsn, Account account);
+        void transactionPosted(long lsn, Transaction transaction);
+    }
+    
+    /**
+     * Sees each operation's records once the journal has accepted them for
+     * writing, and each epoch cut, in LSN order and under the journal lock,
+     * so it can mirror the journal exactly. An operation whose write is
+     * refused outright is never shown to it.
+     */
+    public interface AppendListener extends Listener {
+        void cut(long lsn);
+        
+        /**
+         * The write of the operation at lsn completed (durable under the
+         * fsync policy), or failed; called once per operation, in LSN
+         * order, on whichever thread completed it
+         */
+        void committed(long lsn, boolean written);
+    }
+    
+    /**
+     * A sealed segment and the LSN of its last record
+     */
+    private static class Segment {
+        final Path path;
+        final long lastLsn;
+        
+        Segment(Path path, long lastLsn) {
+            this.path = path;
+            this.lastLsn = lastLsn;
+        }
+    }
+    
+    private final Path directory;
+    private final StorageConfig config;
+    private final ByteArrayOutputStream recordBuffer;
+    private final DataOutputStream recordOut;
+    private final ByteArrayOutputStream staged;
+    private final DataOutputStream stagedOut;
+    private final CRC32 crc;
+    private final Object ioLock;
+    private final CommitMetrics metrics;
+    private final List<Segment> sealedSegments;
+    private ScheduledExecutorService flusher;
+    private volatile GroupCommitter committer;
+    private AppendListener appendListener;
+    private FileChannel channel;
+    private int activeSegment;
+    private volatile long activeSegmentBytes;
+    private long nextLsn;
+    private boolean dirty;
+    
+    public Journal(Path directory, StorageConfig config) throws IOException {
+        this.directory = directory;
+        this.config = config;
+        this.recordBuffer = new ByteArrayOutputStream(256);
+        this.recordOut = new DataOutputStream(recordBuffer);
+        this.staged = new ByteArrayOutputStream(1024);
+        this.stagedOut = new DataOutputStream(staged);
+        this.crc = new CRC32();
+        this.ioLock = new Object();
+        this.metrics = new CommitMetrics();
+        this.sealedSegments = new ArrayList<>();
+        this.nextLsn = 1;
+        
+        // A single-file journal from an older version becomes segment 0
+        Path legacy = directory.resolve(LEGACY_JOURNAL_FILE);
+        if (Files.exists(legacy)) {
+            Files.move(legacy, segmentPath(0));
+        }
+        List<Integer> existing = listSegments();
+        this.activeSegment = existing.isEmpty() ? 1 : existing.get(existing.size() - 1);
+        if (!existing.isEmpty() && !hasCurrentHeader(segmentPath(activeSegment))) {
+            // Never append current-version records to an older segment
+            activeSegment++;
+        }
+        this.channel = openSegment(activeSegment);
+    }
+    
+    /**
+     * Start the background writer the fsync policy needs (the group
+     * committer or the interval flusher); call once the journal is
+     * constructed, before the first log*() call
+     */
+    public synchronized void start() {
+        if (committer != null || flusher != null) {
+            return;
+        }
+        if (config.getFsyncPolicy() == FsyncPolicy.GROUP_COMMIT) {
+            committer = new GroupCommitter(this, config, metrics);
+        } else if (config.getFsyncPolicy() == FsyncPolicy.INTERVAL) {
+            flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "journal-flusher");
+                t.setDaemon(true);
+                return t;
+            });
+            long interval = config.getFsyncIntervalMillis();
+            flusher.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    /**
+     * Replay every intact record of every segment and position the journal for appending
+     * A torn record at the tail of the newest segment (crash mid-write) is cut off
+     * Returns the LSN of the last intact record, or 0 when empty
+     */
+    public synchronized long replay(Listener listener) throws IOException {
+        long lastLsn = 0;
+        synchronized (ioLock) {
+            sealedSegments.clear();
+            for (int segment : listSegments()) {
+                boolean active = segment == activeSegment;
+                SegmentScan scan = scanSegment(segmentPath(segment), listener, active);
+                if (scan.lastLsn > 0) {
+                    lastLsn = scan.lastLsn;
+                }
+                if (!active) {
+                    sealedSegments.add(new Segment(segmentPath(segment), lastLsn));
+                    continue;
+                }
+                if (scan.validEnd < channel.size()) {
+                    System.out.println("Note: Discarding " + (channel.size() - scan.validEnd)
+                            + " bytes of incomplete journal tail");
+                    channel.truncate(scan.validEnd);
+                    channel.force(false);
+                }
+                channel.position(scan.validEnd);
+                activeSegmentBytes = scan.validEnd;
+            }
+        }
+        nextLsn = lastLsn + 1;
+        return lastLsn;
+    }
+    
+    /**
+     * Replay the sealed segments whose records are all at or below upToLsn
+     * Reads files only; never touches the segment being appended to
+     */
+    public void replaySealed(long upToLsn, Listener listener) throws IOException {
+        for (Segment segment : sealedUpTo(upToLsn)) {
+            scanSegment(segment.path, listener, false);
+        }
+    }
+    
+    /**
+     * Delete sealed segments fully covered by a snapshot at upToLsn
+     */
+    public void deleteSegmentsUpTo(long upToLsn) throws IOException {
+        for (Segment segment : sealedUpTo(upToLsn)) {
+            Files.deleteIfExists(segment.path);
+            synchronized (ioLock) {
+                sealedSegments.remove(segment);
+            }
+        }
+    }
+    
+    /**
+     * Seal the active segment and start a new one (epoch cut)
+     * Everything committed before the call lands in the sealed segment;
+     * the future completes with the cut LSN once that segment is on disk.
+     */
+    public synchronized CompletableFuture<Long> roll() {
+        long cutLsn = nextLsn - 1;
+        if (appendListener != null) {
+            appendListener.cut(cutLsn);
+        }
+        if (committer != null) {
+            return committer.submitRoll(cutLsn);
+        }
+        try {
+            rollSegment(cutLsn);
+            return CompletableFuture.completedFuture(cutLsn);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+    
+    /**
+     * Make sure new records are numbered after the given LSN
+     * Used when the snapshot is newer than anything left in the journal
+     */
+    public synchronized void advancePast(long lsn) {
+        if (nextLsn <= lsn) {
+            nextLsn = lsn + 1;
+        }
+    }
+    
+    /**
+     * Register the listener told about every record appended from now on
+     */
+    public synchronized void setAppendListener(AppendListener appendListener) {
+        this.appendListener = appendListener;
+    }
+    
+    /**
+     * Journal an account creation as one operation
+     * The future completes with its LSN once durable (see commit())
+     */
+    public synchronized CompletableFuture<Long> logAccountOpened(Account account) {
+        long lsn;
+        try {
+            lsn = beginRecord(ACCOUNT_OPENED);
+            RecordCodec.writeAccount(recordOut, account);
+            endRecord();
+        } catch (IOException e) {
+            return discardStaged(e);
+        }
+        CompletableFuture<Long> durable = commit();
+        if (appendListener != null && !durable.isCompletedExceptionally()) {
+            appendListener.accountOpened(lsn, account);
+            notifyCommitted(lsn, durable);
+        }
+        return durable;
+    }
+    
+    /**
+     * Journal the transactions of one operation (e.g. both legs of a
+     * transfer) as a single record, so they are written, checksummed and
+     * replayed as a unit
+     */
+    public synchronized CompletableFuture<Long> logTransactions(Transaction... transactions) {
+        if (transactions.length == 0) {
+            return CompletableFuture.completedFuture(nextLsn - 1);
+        }
+        long lsn;
+        try {
+            if (transactions.length == 1) {
+                lsn = beginRecord(TRANSACTION_POSTED);
+                RecordCodec.writeTransaction(recordOut, transactions[0]);
+            } else {
+                lsn = beginRecord(TRANSACTIONS_POSTED);
+                recordOut.writeInt(transactions.length);
+                for (Transaction transaction : transactions) {
+                    RecordCodec.writeTransaction(recordOut, transaction);
+                }
+            }
+            endRecord();
+        } catch (IOException e) {
+            return discardStaged(e);
+        }
+        // Listeners hear of it only once it is written (or queued for the
+        // group commit), so a refused write leaves no trace in the ledger
+        CompletableFuture<Long> durable = commit();
+        if (appendListener != null && !durable.isCompletedExceptionally()) {
+            try {
+                for (Transaction transaction : transactions) {
+                    appendListener.transactionPosted(lsn, transaction);
+                }
+            } catch (UncheckedIOException e) {
+                System.out.println("Warning: Could not save data - " + e.getCause().getMessage());
+            }
+            notifyCommitted(lsn, durable);
+        }
+        return durable;
+    }
+    
+    /**
+     * Tell the append listener when the operation's write completes
+     * Registered after the listener saw the records, so it never hears
+     * of a commit before the records themselves
+     */
+    private void notifyCommitted(long lsn, CompletableFuture<Long> durable) {
+        AppendListener listener = appendListener;
+        durable.whenComplete((committedLsn, failure) -> listener.committed(lsn, failure == null));
+    }
+    
+    /**
+     * Write the records staged since the last commit as one operation
+     * The returned future completes with the operation's last LSN when it
+     * is durable under the configured fsync policy (INTERVAL acknowledges
+     * once written)
+     */
+    private CompletableFuture<Long> commit() {
+        long lsn = nextLsn - 1;
+        if (staged.size() == 0) {
+            return CompletableFuture.completedFuture(lsn);
+        }
+        byte[] frames = staged.toByteArray();
+        staged.reset();
+        
+        if (committer != null) {
+            return committer.submit(frames, lsn);
+        }
+        long started = System.nanoTime();
+        try {
+            boolean force = config.getFsyncPolicy() == FsyncPolicy.PER_OPERATION;
+            writeFrames(new ByteBuffer[] { ByteBuffer.wrap(frames) }, frames.length, force);
+            if (force) {
+                metrics.recordBatch(1);
+                metrics.recordLatency(System.nanoTime() - started);
+            }
+            return CompletableFuture.completedFuture(lsn);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+    
+    /**
+     * Force all committed records to disk
+     */
+    public void flush() {
+        if (committer != null) {
+            committer.sync();
+            return;
+        }
+        synchronized (ioLock) {
+            if (!dirty) {
+                return;
+            }
+            try {
+                channel.force(false);
+                dirty = false;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+    
+    /**
+     * LSN of the most recently appended record
+     */
+    public synchronized long getLastLsn() {
+        return nextLsn - 1;
+    }
+    
+    /**
+     * Bytes written to the active segment; grows until the next roll()
+     */
+    public long getActiveSegmentBytes() {
+        return activeSegmentBytes;
+    }
+    
+    /**
+     * Batch size and commit latency counters
+     */
+    public CommitMetrics getMetrics() {
+        return metrics;
+    }
+    
+    @Override
+    public synchronized void close() throws IOException {
+        if (flusher != null) {
+            flusher.shutdownNow();
+        }
+        flush();
+        if (committer != null) {
+            committer.shutdown();
+        }
+        synchronized (ioLock) {
+            channel.close();
+        }
+    }
+    
+    /**
+     * Append frames to the active segment, optionally forcing them
+     * A failed write is cut off so later commits are not stranded behind it
+     */
+    void writeFrames(ByteBuffer[] buffers, long bytes, boolean force) throws IOException {
+        synchronized (ioLock) {
+            long start = channel.position();
+            try {
+                long written = 0;
+                while (written < bytes) {
+                    written += channel.write(buffers);
+                }
+                if (force) {
+                    channel.force(false);
+                }
+                dirty = !force;
+                activeSegmentBytes = start + bytes;
+            } catch (IOException e) {
+                channel.truncate(start);
+                channel.position(start);
+                throw e;
+            }
+        }
+    }
+    
+    /**
+     * Force and seal the active segment, then open the next one
+     */
+    void rollSegment(long cutLsn) throws IOException {
+        synchronized (ioLock) {
+            channel.force(false);
+            channel.close();
+            sealedSegments.add(new Segment(segmentPath(activeSegment), cutLsn));
+            activeSegment++;
+            channel = openSegment(activeSegment);
+            activeSegmentBytes = channel.size();
+            dirty = false;
+        }
+    }
+    
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (UncheckedIOException e) {
+            System.out.println("Warning: Could not flush journal - " + e.getCause().getMessage());
+        }
+    }
+    
+    private List<Segment> sealedUpTo(long upToLsn) {
+        List<Segment> result = new ArrayList<>();
+        synchronized (ioLock) {
+            for (Segment segment : sealedSegments) {
+                if (segment.lastLsn <= upToLsn) {
+                    result.add(segment);
+                }
+            }
+        }
+        return result;
+    }
+    
+    private static class SegmentScan {
+        long validEnd;
+        long lastLsn;
+    }
+    
+    /**
+     * Read one segment, passing each intact record to the listener
+     * Only the active segment may end in a torn record; anywhere else
+     * a bad record means the file is damaged
+     */
+    private SegmentScan scanSegment(Path path, Listener listener, boolean allowTornTail) throws IOException {
+        SegmentScan scan = new SegmentScan();
+        CRC32 checksum = new CRC32();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(path), 64 * 1024))) {
+            byte[] body = new byte[256];
+            int version = 0;
+            boolean first = true;
+            while (true) {
+                int length;
+                int expected;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                try {
+                    expected = in.readInt();
+                    if (first) {
+                        first = false;
+                        if (length == SEGMENT_MAGIC) {
+                            version = expected;
+                            if (version > RecordCodec.VERSION) {
+                                throw new IOException("Unsupported journal version " + version);
+                            }
+                            scan.validEnd = SEGMENT_HEADER_SIZE;
+                            continue;
+                        }
+                    }
+                    if (length <= 0 || length > MAX_RECORD_SIZE) {
+                        throw new IOException("Bad record length " + length);
+                    }
+                    if (body.length < length) {
+                        body = new byte[length];
+                    }
+                    in.readFully(body, 0, length);
+                    checksum.reset();
+                    checksum.update(body, 0, length);
+                    if ((int) checksum.getValue() != expected) {
+                        throw new IOException("Checksum mismatch");
+                    }
+                } catch (IOException e) {
+                    if (allowTornTail) {
+                        break;
+                    }
+                    throw new IOException("Journal segment " + path.getFileName()
+                            + " is damaged at byte " + scan.validEnd, e);
+                }
+                
+                DataInputStream record = new DataInputStream(new ByteArrayInputStream(body, 0, length));
+                long lsn = record.readLong();
+                byte type = record.readByte();
+                if (type == ACCOUNT_OPENED) {
+                    listener.accountOpened(lsn, RecordCodec.readAccount(record, version));
+                } else if (type == TRANSACTION_POSTED) {
+                    listener.transactionPosted(lsn, RecordCodec.readTransaction(record, version));
+                } else if (type == TRANSACTIONS_POSTED) {
+                    // Decode every leg before delivering any of them
+                    Transaction[] legs = new Transaction[record.readInt()];
+                    for (int i = 0; i < legs.length; i++) {
+                        legs[i] = RecordCodec.readTransaction(record, version);
+                    }
+                    for (Transaction leg : legs) {
+                        listener.transactionPosted(lsn, leg);
+                    }
+                } else {
+                    throw new IOException("Unknown journal record type " + type + " at LSN " + lsn);
+                }
+                scan.lastLsn = lsn;
+                scan.validEnd += HEADER_SIZE + length;
+            }
+        }
+        return scan;
+    }
+    
+    private List<Integer> listSegments() throws IOException {
+        List<Integer> segments = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(path -> {
+                String name = path.getFileName().toString();
+                if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                    segments.add(Integer.parseInt(name.substring(SEGMENT_PREFIX.length(),
+                            name.length() - SEGMENT_SUFFIX.length())));
+                }
+            });
+        }
+        segments.sort(null);
+        return segments;
+    }
+    
+    private Path segmentPath(int segment) {
+        return directory.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, segment, SEGMENT_SUFFIX));
+    }
+    
+    private static boolean hasCurrentHeader(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(path))) {
+            return in.readInt() == SEGMENT_MAGIC && in.readInt() == RecordCodec.VERSION;
+        } catch (EOFException e) {
+            return Files.size(path) == 0;
+        }
+    }
+    
+    /**
+     * Open a segment for appending, writing the header into a new one
+     */
+    private FileChannel openSegment(int segment) throws IOException {
+        FileChannel segmentChannel = FileChannel.open(segmentPath(segment), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (segmentChannel.size() == 0) {
+            ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_SIZE);
+            header.putInt(SEGMENT_MAGIC).putInt(RecordCodec.VERSION).flip();
+            while (header.hasRemaining()) {
+                segmentChannel.write(header);
+            }
+        }
+        segmentChannel.position(segmentChannel.size());
+        return segmentChannel;
+    }
+    
+    /**
+     * Drop a partly staged operation and report the failure
+     */
+    private CompletableFuture<Long> discardStaged(IOException e) {
+        staged.reset();
+        return CompletableFuture.failedFuture(e);
+    }
+    
+    private long beginRecord(byte type) throws IOException {
+        recordBuffer.reset();
+        long lsn = nextLsn;
+        recordOut.writeLong(lsn);
+        recordOut.writeByte(type);
+        return lsn;
+    }
+    
+    private void endRecord() throws IOException {
+        recordOut.flush();
+        if (recordBuffer.size() > MAX_RECORD_SIZE) {
+            throw new IOException("Journal record of " + recordBuffer.size() + " bytes is too large");
+        }
+        byte[] body = recordBuffer.toByteArray();
+        crc.reset();
+        crc.update(body, 0, body.length);
+        
+        stagedOut.writeInt(body.length);
+        stagedOut.writeInt((int) crc.getValue());
+        stagedOut.write(body);
+        stagedOut.flush();
+        nextLsn++;
+    }
+}
@@ -0,0 +1,241 @@
+package com.banking.persistence;
+
+import com.banking.model.*;
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * LegacyDataMigrator - Brings data files from older versions up to date
+ * Runs automatically before the snapshot is loaded:
+ *   accounts.dat / transactions.dat (Java serialization) become accounts.bin
+ *   and ledger records; a transactions.bin snapshot moves into the ledger
+ * and, when TransactionLog opens it, a ledger of 48-byte rows
+ * (ledger-*.seg) is converted to columns.
+ * The original files are kept next to the new ones with a .bak suffix.
+ */
+public final class LegacyDataMigrator {
+    private static final String LEGACY_ACCOUNTS_FILE = "accounts.dat";
+    private static final String LEGACY_TRANSACTIONS_FILE = "transactions.dat";
+    private static final String TRANSACTIONS_SNAPSHOT_FILE = "transactions.bin";
+    private static final String BACKUP_SUFFIX = ".bak";
+    
+    // Row ledger layout (48 bytes per record)
+    private static final int ROW_SIZE = 48;
+    private static final int ROWS_PER_SEGMENT = 1 << 18;
+    private static final int ROW_ID = 0;
+    private static final int ROW_TIMESTAMP = 8;
+    private static final int ROW_AMOUNT = 16;
+    private static final int ROW_BALANCE_AFTER = 24;
+    private static final int ROW_ACCOUNT = 32;
+    private static final int ROW_DESCRIPTION = 36;
+    private static final int ROW_TYPE_TEXT = 40;
+    private static final int ROW_TYPE_CODE = 44;
+    private static final int ROW_DESCRIPTION_KIND = 45;
+    private static final int ROW_ID_DIGITS = 46;
+    
+    private LegacyDataMigrator() {
+    }
+    
+    /**
+     * Migrate whatever older files the directory still holds
+     * Returns true when a migration was performed
+     */
+    public static boolean migrateIfNeeded(Path directory, TransactionLog ledger) throws IOException {
+        boolean migrated = migrateSerialized(directory, ledger);
+        return migrateTransactionSnapshot(directory, ledger) || migrated;
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static boolean migrateSerialized(Path directory, TransactionLog ledger) throws IOException {
+        Path accountsFile = directory.resolve(LEGACY_ACCOUNTS_FILE);
+        Path transactionsFile = directory.resolve(LEGACY_TRANSACTIONS_FILE);
+        if (!Files.exists(accountsFile) && !Files.exists(transactionsFile)) {
+            return false;
+        }
+        
+        long legacyBytes = sizeOf(accountsFile) + sizeOf(transactionsFile);
+        Map<String, Account> accounts = new HashMap<>();
+        List<Transaction> transactions = new ArrayList<>();
+        long accountsLsn = 0;
+        long transactionsLsn = 0;
+        try {
+            if (Files.exists(accountsFile)) {
+                try (ObjectInputStream ois = new ObjectInputStream(
+                        new BufferedInputStream(Files.newInputStream(accountsFile)))) {
+                    accounts = (Map<String, Account>) ois.readObject();
+                    accountsLsn = readLsn(ois);
+                }
+            }
+            if (Files.exists(transactionsFile)) {
+                try (ObjectInputStream ois = new ObjectInputStream(
+                        new BufferedInputStream(Files.newInputStream(transactionsFile)))) {
+                    transactions = (List<Transaction>) ois.readObject();
+                    ois.readInt(); // transaction counter, now derived from the ledger
+                    transactionsLsn = readLsn(ois);
+                }
+            }
+        } catch (ClassNotFoundException e) {
+            throw new IOException(e);
+        }
+        
+        // The journal only holds records newer than the legacy files,
+        // so accounts and ledger each keep the LSN their old file recorded
+        if (Files.exists(accountsFile) && !hasSnapshotSince(directory, accountsLsn)) {
+            new Snapshot(accounts, accountsLsn).write(directory, accountsLsn);
+        }
+        importTransactions(ledger, transactions, transactionsLsn);
+        
+        backup(accountsFile);
+        backup(transactionsFile);
+        System.out.println("Note: Migrated " + accounts.size() + " accounts and "
+                + transactions.size() + " transactions to the binary format ("
+                + legacyBytes + " -> " + (sizeOf(directory.resolve(Snapshot.ACCOUNTS_FILE))
+                + transactions.size() * (long) TransactionLog.RECORD_SIZE) + " bytes)");
+        return true;
+    }
+    
+    /**
+     * Move a transactions.bin snapshot into the ledger
+     */
+    private static boolean migrateTransactionSnapshot(Path directory, TransactionLog ledger) throws IOException {
+        Path file = directory.resolve(TRANSACTIONS_SNAPSHOT_FILE);
+        if (!Files.exists(file)) {
+            return false;
+        }
+        
+        List<Transaction> transactions = new ArrayList<>();
+        long lsn;
+        try (DataInputStream in = Snapshot.openForRead(file)) {
+            int version = Snapshot.readHeader(in, file);
+            lsn = in.readLong();
+            in.readInt(); // transaction counter, now derived from the ledger
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                transactions.add(RecordCodec.readTransaction(in, version));
+            }
+        }
+        importTransactions(ledger, transactions, lsn);
+        
+        backup(file);
+        System.out.println("Note: Moved " + transactions.size() + " transactions into the ledger");
+        return true;
+    }
+    
+    /**
+     * Convert a ledger of 48-byte rows into the empty columnar ledger
+     * Called by TransactionLog while it opens a row ledger, with the
+     * dictionary already loaded. Until the new head file is written the
+     * row ledger stays authoritative, so an interrupted conversion simply
+     * runs again.
+     */
+    static void migrateRowLedger(Path directory, long rows, long lsn, List<String> strings,
+                                 TransactionLog ledger) throws IOException {
+        List<Path> segmentFiles = new ArrayList<>();
+        for (int segment = 0; (long) segment * ROWS_PER_SEGMENT < rows; segment++) {
+            Path file = directory.resolve(String.format("ledger-%06d.seg", segment));
+            segmentFiles.add(file);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                long end = Math.min(rows, (long) (segment + 1) * ROWS_PER_SEGMENT);
+                for (long index = (long) segment * ROWS_PER_SEGMENT; index < end; index++) {
+                    ledger.append(readRow(buffer, (int) (index % ROWS_PER_SEGMENT) * ROW_SIZE, strings));
+                }
+            }
+        }
+        ledger.cut(lsn);
+        ledger.checkpoint(lsn);
+        
+        for (Path file : segmentFiles) {
+            backup(file);
+        }
+        System.out.println("Note: Converted " + rows + " ledger records to the columnar format ("
+                + rows * ROW_SIZE + " -> " + rows * TransactionLog.RECORD_SIZE + " bytes)");
+    }
+    
+    private static Transaction readRow(MappedByteBuffer buffer, int offset, List<String> strings)
+            throws IOException {
+        byte typeCode = buffer.get(offset + ROW_TYPE_CODE);
+        String type = typeCode == RecordCodec.TYPE_OTHER
+                ? strings.get(buffer.getInt(offset + ROW_TYPE_TEXT)) : RecordCodec.typeName(typeCode);
+        
+        String description;
+        int descriptionRef = buffer.getInt(offset + ROW_DESCRIPTION);
+        switch (buffer.get(offset + ROW_DESCRIPTION_KIND)) {
+            case 0:
+                description = RecordCodec.standardDescription(type);
+                break;
+            case 1:
+                description = RecordCodec.transferPrefix(type) + strings.get(descriptionRef);
+                break;
+            default:
+                description = strings.get(descriptionRef);
+        }
+        
+        String accountNumber = strings.get(buffer.getInt(offset + ROW_ACCOUNT));
+        double amount = buffer.getDouble(offset + ROW_AMOUNT);
+        double balanceAfter = buffer.getDouble(offset + ROW_BALANCE_AFTER);
+        LocalDateTime timestamp = RecordCodec.fromEpochMicros(buffer.getLong(offset + ROW_TIMESTAMP));
+        int idDigits = buffer.get(offset + ROW_ID_DIGITS);
+        long id = buffer.getLong(offset + ROW_ID);
+        if (idDigits > 0 && idDigits == RecordCodec.idDigits(id)) {
+            return new Transaction(id, accountNumber, type, amount, balanceAfter, description, timestamp);
+        }
+        String transactionId = idDigits > 0
+                ? RecordCodec.TRANSACTION_ID_PREFIX + RecordCodec.padDigits(id, idDigits)
+                : strings.get((int) id);
+        return new Transaction(transactionId, accountNumber, type, amount, balanceAfter, description, timestamp);
+    }
+    
+    /**
+     * Append transactions to an empty ledger and force them
+     * A non-empty ledger already holds them (a previous run stopped
+     * before the old file was renamed)
+     */
+    private static void importTransactions(TransactionLog ledger, List<Transaction> transactions, long lsn)
+            throws IOException {
+        if (ledger.size() > 0) {
+            return;
+        }
+        for (Transaction transaction : transactions) {
+            ledger.append(transaction);
+        }
+        ledger.cut(lsn);
+        ledger.checkpoint(lsn);
+    }
+    
+    /**
+     * True if accounts.bin already covers lsn: a previous run stopped
+     * between writing it and renaming the old files, and checkpoints may
+     * have advanced it since, so it must not be replaced
+     */
+    private static boolean hasSnapshotSince(Path directory, long lsn) throws IOException {
+        return Files.exists(directory.resolve(Snapshot.ACCOUNTS_FILE))
+                && Snapshot.load(directory).getLsn() >= lsn;
+    }
+    
+    /**
+     * Files written before the journal existed have no LSN trailer
+     */
+    private static long readLsn(ObjectInputStream ois) throws IOException {
+        try {
+            return ois.readLong();
+        } catch (EOFException e) {
+            return 0;
+        }
+    }
+    
+    private static void backup(Path file) throws IOException {
+        if (Files.exists(file)) {
+            Files.move(file, file.resolveSibling(file.getFileName() + BACKUP_SUFFIX),
+                    StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+    
+    private static long sizeOf(Path file) throws IOException {
+        return Files.exists(file) ? Files.size(file) : 0;
+    }
+}
@@ -0,0 +1,358 @@
+package com.banking.persistence;
+
+import com.banking.model.*;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * RecordCodec - Compact binary encoding of accounts and transactions
+ * Used by snapshot files and journal records instead of Java serialization:
+ * no class descriptors, no field names and no reflection
+ *
+ * Version 1 layout
+ *   Account:     kind(1) number balance(8) parameter(8) holder [type]
+ *   Transaction: id type(1) number amount(8) balanceAfter(8) micros(8) description
+ * Numeric account numbers and numeric transaction ids are stored as longs, the
+ * standard transaction types as one byte, and standard descriptions as
+ * a tag (plus the counterparty for transfers). Timestamps are epoch micros.
+ *
+ * Version 0 is the original journal layout and can still be read.
+ */
+public final class RecordCodec {
+    public static final int VERSION = 1;
+    
+    static final byte KIND_REGULAR = 0;
+    static final byte KIND_SAVINGS = 1;
+    static final byte KIND_CHECKING = 2;
+    static final byte KIND_CUSTOM = 3;
+    
+    private static final String[] TYPE_NAMES = {
+        null, "DEPOSIT", "WITHDRAWAL", "TRANSFER_OUT", "TRANSFER_IN", "INTEREST"
+    };
+    static final byte TYPE_OTHER = 0;
+    
+    private static final byte DESCRIPTION_TEXT = 0;
+    private static final byte DESCRIPTION_STANDARD = 1;
+    private static final byte DESCRIPTION_TRANSFER = 2;
+    
+    private static final String DEPOSIT_TEXT = "Deposit to account";
+    private static final String WITHDRAWAL_TEXT = "Withdrawal from account";
+    private static final String TRANSFER_OUT_PREFIX = "Transfer to ";
+    private static final String TRANSFER_IN_PREFIX = "Transfer from ";
+    
+    static final String TRANSACTION_ID_PREFIX = "TXN";
+    private static final int MAX_PACKED_DIGITS = 18;
+    
+    private RecordCodec() {
+    }
+    
+    // Accounts
+    
+    public static void writeAccount(DataOutput out, Account account) throws IOException {
+        byte kind = accountKind(account);
+        out.writeByte(kind);
+        writeAccountNumber(out, account.getAccountNumber());
+        out.writeDouble(account.getBalance());
+        out.writeDouble(accountParameter(account));
+        out.writeUTF(account.getAccountHolderName());
+        if (kind == KIND_CUSTOM) {
+            out.writeUTF(account.getAccountType());
+        }
+    }
+    
+    /**
+     * Account kind as stored in account records and AccountSlots
+     */
+    static byte accountKind(Account account) {
+        if (account instanceof SlotAccount) {
+            return ((SlotAccount) account).getKind();
+        } else if (account instanceof SavingsAccount) {
+            return KIND_SAVINGS;
+        } else if (account instanceof CheckingAccount) {
+            return KIND_CHECKING;
+        } else if ("Regular".equals(account.getAccountType())) {
+            return KIND_REGULAR;
+        }
+        return KIND_CUSTOM;
+    }
+    
+    /**
+     * Interest rate of a savings account, overdraft limit of a checking
+     * account, else 0
+     */
+    static double accountParameter(Account account) {
+        if (account instanceof SlotAccount) {
+            return ((SlotAccount) account).getParameter();
+        } else if (account instanceof SavingsAccount) {
+            return ((SavingsAccount) account).getInterestRate();
+        } else if (account instanceof CheckingAccount) {
+            return ((CheckingAccount) account).getOverdraftLimit();
+        }
+        return 0;
+    }
+    
+    public static Account readAccount(DataInput in, int version) throws IOException {
+        if (version == 0) {
+            return readAccountV0(in);
+        }
+        byte kind = in.readByte();
+        String accountNumber = readAccountNumber(in);
+        double balance = in.readDouble();
+        double parameter = in.readDouble();
+        String holderName = in.readUTF();
+        switch (kind) {
+            case KIND_SAVINGS:
+                return new SavingsAccount(accountNumber, holderName, parameter, balance);
+            case KIND_CHECKING:
+                return new CheckingAccount(accountNumber, holderName, parameter, balance);
+            case KIND_REGULAR:
+                return new BankAccount(accountNumber, holderName, "Regular", balance);
+            case KIND_CUSTOM:
+                return new BankAccount(accountNumber, holderName, in.readUTF(), balance);
+            default:
+                throw new IOException("Unknown account kind " + kind);
+        }
+    }
+    
+    // Transactions
+    
+    public static void writeTransaction(DataOutput out, Transaction transaction) throws IOException {
+        writeTransactionId(out, transaction);
+        String type = transaction.getTransactionType();
+        byte typeCode = typeCode(type);
+        out.writeByte(typeCode);
+        if (typeCode == TYPE_OTHER) {
+            out.writeUTF(type);
+        }
+        writeAccountNumber(out, transaction.getAccountNumber());
+        out.writeDouble(transaction.getAmount());
+        out.writeDouble(transaction.getBalanceAfter());
+        out.writeLong(toEpochMicros(transaction.getTimestamp()));
+        writeDescription(out, type, transaction.getDescription());
+    }
+    
+    public static Transaction readTransaction(DataInput in, int version) throws IOException {
+        if (version == 0) {
+            return readTransactionV0(in);
+        }
+        int idDigits = in.readUnsignedByte();
+        long number = idDigits == 0 ? Transaction.NO_NUMBER : in.readLong();
+        String transactionId = idDigits == 0 ? in.readUTF() : null;
+        byte typeCode = in.readByte();
+        String type = typeCode == TYPE_OTHER ? in.readUTF() : typeName(typeCode);
+        String accountNumber = readAccountNumber(in);
+        double amount = in.readDouble();
+        double balanceAfter = in.readDouble();
+        LocalDateTime timestamp = fromEpochMicros(in.readLong());
+        String description = readDescription(in, type);
+        if (idDigits > 0 && idDigits == idDigits(number)) {
+            return new Transaction(number, accountNumber, type, amount, balanceAfter, description, timestamp);
+        }
+        if (idDigits > 0) {
+            // Written with extra leading zeros, so kept as text
+            transactionId = TRANSACTION_ID_PREFIX + padDigits(number, idDigits);
+        }
+        return new Transaction(transactionId, accountNumber, type, amount, balanceAfter,
+                description, timestamp);
+    }
+    
+    // Field encodings
+    
+    public static long toEpochMicros(LocalDateTime timestamp) {
+        long seconds = timestamp.toEpochSecond(ZoneOffset.UTC);
+        return seconds * 1_000_000L + timestamp.getNano() / 1_000;
+    }
+    
+    public static LocalDateTime fromEpochMicros(long micros) {
+        long seconds = Math.floorDiv(micros, 1_000_000L);
+        int nanos = (int) Math.floorMod(micros, 1_000_000L) * 1_000;
+        return LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC);
+    }
+    
+    /**
+     * All-digit account numbers (up to 18 digits) are packed into a long;
+     * the leading byte holds the digit count so leading zeros survive.
+     * Anything else is written as a string behind a zero byte.
+     */
+    public static void writeAccountNumber(DataOutput out, String accountNumber) throws IOException {
+        int digits = packableDigits(accountNumber, 0);
+        if (digits > 0) {
+            out.writeByte(digits);
+            out.writeLong(Long.parseLong(accountNumber));
+        } else {
+            out.writeByte(0);
+            out.writeUTF(accountNumber);
+        }
+    }
+    
+    public static String readAccountNumber(DataInput in) throws IOException {
+        int digits = in.readUnsignedByte();
+        if (digits == 0) {
+            return in.readUTF();
+        }
+        return padDigits(in.readLong(), digits);
+    }
+    
+    private static void writeTransactionId(DataOutput out, Transaction transaction) throws IOException {
+        long number = transaction.getTransactionNumber();
+        if (number != Transaction.NO_NUMBER) {
+            out.writeByte(idDigits(number));
+            out.writeLong(number);
+        } else {
+            out.writeByte(0);
+            out.writeUTF(transaction.getTransactionId());
+        }
+    }
+    
+    private static void writeDescription(DataOutput out, String type, String description) throws IOException {
+        if (isStandardDescription(type, description)) {
+            out.writeByte(DESCRIPTION_STANDARD);
+            return;
+        }
+        String prefix = transferPrefix(type);
+        if (prefix != null && description.startsWith(prefix)) {
+            out.writeByte(DESCRIPTION_TRANSFER);
+            writeAccountNumber(out, description.substring(prefix.length()));
+            return;
+        }
+        out.writeByte(DESCRIPTION_TEXT);
+        out.writeUTF(description);
+    }
+    
+    private static String readDescription(DataInput in, String type) throws IOException {
+        byte tag = in.readByte();
+        switch (tag) {
+            case DESCRIPTION_STANDARD:
+                return standardDescription(type);
+            case DESCRIPTION_TRANSFER:
+                return transferPrefix(type) + readAccountNumber(in);
+            case DESCRIPTION_TEXT:
+                return in.readUTF();
+            default:
+                throw new IOException("Unknown description tag " + tag);
+        }
+    }
+    
+    /**
+     * True when the description is the one BankService generates for
+     * a deposit or withdrawal
+     */
+    static boolean isStandardDescription(String type, String description) {
+        return ("DEPOSIT".equals(type) && DEPOSIT_TEXT.equals(description))
+                || ("WITHDRAWAL".equals(type) && WITHDRAWAL_TEXT.equals(description));
+    }
+    
+    static String standardDescription(String type) {
+        return "DEPOSIT".equals(type) ? DEPOSIT_TEXT : WITHDRAWAL_TEXT;
+    }
+    
+    static String transferPrefix(String type) {
+        if ("TRANSFER_OUT".equals(type)) {
+            return TRANSFER_OUT_PREFIX;
+        }
+        if ("TRANSFER_IN".equals(type)) {
+            return TRANSFER_IN_PREFIX;
+        }
+        return null;
+    }
+    
+    static byte typeCode(String type) {
+        for (int i = 1; i < TYPE_NAMES.length; i++) {
+            if (TYPE_NAMES[i].equals(type)) {
+                return (byte) i;
+            }
+        }
+        return TYPE_OTHER;
+    }
+    
+    static String typeName(byte code) throws IOException {
+        if (code <= 0 || code >= TYPE_NAMES.length) {
+            throw new IOException("Unknown transaction type code " + code);
+        }
+        return TYPE_NAMES[code];
+    }
+    
+    /**
+     * Number of digits from offset to the end, or 0 if the tail is not
+     * a plain run of 1..18 digits
+     */
+    static int packableDigits(String value, int offset) {
+        int digits = value.length() - offset;
+        if (digits <= 0 || digits > MAX_PACKED_DIGITS) {
+            return 0;
+        }
+        for (int i = offset; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return 0;
+            }
+        }
+        return digits;
+    }
+    
+    /**
+     * Digits a numeric transaction id is rendered with, as in
+     * Transaction.formatTransactionId
+     */
+    static int idDigits(long number) {
+        int digits = 1;
+        for (long rest = number / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        return Math.max(5, digits);
+    }
+    
+    static String padDigits(long value, int digits) {
+        String text = Long.toString(value);
+        if (text.length() >= digits) {
+            return text;
+        }
+        StringBuilder padded = new StringBuilder(digits);
+        for (int i = text.length(); i < digits; i++) {
+            padded.append('0');
+        }
+        return padded.append(text).toString();
+    }
+    
+    // Version 0 readers
+    
+    private static Account readAccountV0(DataInput in) throws IOException {
+        byte kind = in.readByte();
+        double parameter = 0;
+        String accountType = null;
+        if (kind == KIND_REGULAR) {
+            accountType = in.readUTF();
+        } else {
+            parameter = in.readDouble();
+        }
+        String accountNumber = in.readUTF();
+        String holderName = in.readUTF();
+        double balance = in.readDouble();
+        
+        switch (kind) {
+            case KIND_SAVINGS:
+                return new SavingsAccount(accountNumber, holderName, parameter, balance);
+            case KIND_CHECKING:
+                return new CheckingAccount(accountNumber, holderName, parameter, balance);
+            default:
+                return new BankAccount(accountNumber, holderName, accountType, balance);
+        }
+    }
+    
+    private static Transaction readTransactionV0(DataInput in) throws IOException {
+        String transactionId = in.readUTF();
+        String accountNumber = in.readUTF();
+        String type = in.readUTF();
+        double amount = in.readDouble();
+        double balanceAfter = in.readDouble();
+        LocalDateTime timestamp = LocalDateTime.ofEpochSecond(0, 0, ZoneOffset.UTC)
+                .plus(in.readLong(), ChronoUnit.MICROS);
+        String description = in.readUTF();
+        return new Transaction(transactionId, accountNumber, type, amount, balanceAfter,
+                description, timestamp);
+    }
+}
@@ -0,0 +1,126 @@
+package com.banking.persistence;
+
+import com.banking.model.*;
+
+/**
+ * SlotAccount - Account backed by a slot in AccountSlots
+ * Only the slot number and the names live on the heap; balance and limits
+ * are read from and changed in the mapped slot, with the same rules as
+ * BankAccount, SavingsAccount and CheckingAccount.
+ */
+final class SlotAccount implements Account {
+    private final AccountSlots slots;
+    private final int slot;
+    private final String accountNumber;
+    private final String accountHolderName;
+    private final String accountType;
+    private final byte kind;
+    
+    SlotAccount(AccountSlots slots, int slot, String accountNumber, String accountHolderName,
+                String accountType, byte kind) {
+        this.slots = slots;
+        this.slot = slot;
+        this.accountNumber = accountNumber;
+        this.accountHolderName = accountHolderName;
+        this.accountType = accountType;
+        this.kind = kind;
+    }
+    
+    @Override
+    public void deposit(double amount) {
+        depositCents(Money.toCents(amount));
+    }
+    
+    @Override
+    public boolean withdraw(double amount) {
+        return withdrawCents(Money.toCents(amount)) != INSUFFICIENT_FUNDS;
+    }
+    
+    @Override
+    public long depositCents(long cents) {
+        if (cents <= 0) {
+            throw new IllegalArgumentException("Deposit amount must be positive");
+        }
+        return slots.addBalanceCents(slot, cents);
+    }
+    
+    /**
+     * Overdraft limit is 0 except for checking accounts
+     */
+    @Override
+    public long withdrawCents(long cents) {
+        if (cents <= 0) {
+            throw new IllegalArgumentException("Withdrawal amount must be positive");
+        }
+        long limit = slots.getOverdraftCents(slot);
+        long current;
+        do {
+            current = slots.getBalanceCents(slot);
+            if (cents > current + limit) {
+                return INSUFFICIENT_FUNDS;
+            }
+        } while (!slots.compareAndSetBalanceCents(slot, current, current - cents));
+        return current - cents;
+    }
+    
+    @Override
+    public long adjustBalanceCents(long deltaCents) {
+        return slots.addBalanceCents(slot, deltaCents);
+    }
+    
+    @Override
+    public long getBalanceCents() {
+        return slots.getBalanceCents(slot);
+    }
+    
+    @Override
+    public double getBalance() {
+        return Money.toAmount(getBalanceCents());
+    }
+    
+    @Override
+    public String getAccountNumber() {
+        return accountNumber;
+    }
+    
+    @Override
+    public String getAccountHolderName() {
+        return accountHolderName;
+    }
+    
+    @Override
+    public String getAccountType() {
+        return accountType;
+    }
+    
+    @Override
+    public double getInterestRate() {
+        return kind == RecordCodec.KIND_SAVINGS ? getParameter() : 0;
+    }
+    
+    byte getKind() {
+        return kind;
+    }
+    
+    /**
+     * Interest rate (savings) or overdraft limit (checking), else 0
+     */
+    double getParameter() {
+        return slots.getParameter(slot);
+    }
+    
+    @Override
+    public String toString() {
+        switch (kind) {
+            case RecordCodec.KIND_SAVINGS:
+                return String.format("Savings Account[%s] %s - Interest Rate: %.2f%% - Balance: $%.2f",
+                    accountNumber, accountHolderName, getParameter(), getBalance());
+            case RecordCodec.KIND_CHECKING:
+                return String.format("Checking Account[%s] %s - Overdraft Limit: $%.2f - Balance: $%.2f",
+                    accountNumber, accountHolderName, getParameter(), getBalance());
+            default:
+                return String.format("Account[%s] %s - %s: $%.2f",
+                    accountNumber, accountHolderName, accountType, getBalance());
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.banking.persistence;
+
+import com.banking.model.*;
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Snapshot - Point-in-time copy of all accounts
+ * Loaded at startup and by the Checkpointer, then brought forward by
+ * replaying journal records into it (it is a Journal.Listener)
+ *
+ * Transaction history is not part of the snapshot; it lives in the
+ * memory-mapped TransactionLog, which tracks its own journal LSN
+ *
+ * File layout: [int magic][int codec version][long lsn] then
+ *   accounts.bin: [int count][account records]
+ */
+public class Snapshot implements Journal.Listener {
+    static final String ACCOUNTS_FILE = "accounts.bin";
+    private static final int MAGIC = 0x47575A53; // "GWZS"
+    private static final int BUFFER_SIZE = 64 * 1024;
+    
+    private Map<String, Account> accounts;
+    private long accountsLsn;
+    
+    public Snapshot() {
+        this.accounts = new HashMap<>();
+    }
+    
+    Snapshot(Map<String, Account> accounts, long accountsLsn) {
+        this.accounts = accounts;
+        this.accountsLsn = accountsLsn;
+    }
+    
+    /**
+     * Read the snapshot file in a directory; a missing file means an empty snapshot
+     */
+    public static Snapshot load(Path directory) throws IOException {
+        Snapshot snapshot = new Snapshot();
+        
+        // Load accounts
+        Path accountsFile = directory.resolve(ACCOUNTS_FILE);
+        if (Files.exists(accountsFile)) {
+            try (DataInputStream in = openForRead(accountsFile)) {
+                int version = readHeader(in, accountsFile);
+                snapshot.accountsLsn = in.readLong();
+                int count = in.readInt();
+                snapshot.accounts = new HashMap<>(count * 2);
+                for (int i = 0; i < count; i++) {
+                    Account account = RecordCodec.readAccount(in, version);
+                    snapshot.accounts.put(account.getAccountNumber(), account);
+                }
+            }
+        }
+        return snapshot;
+    }
+    
+    /**
+     * Write the snapshot file, covering the journal up to lsn
+     * The file is written aside, synced and then renamed over the old one
+     */
+    public void write(Path directory, long lsn) throws IOException {
+        accountsLsn = lsn;
+        
+        // Save accounts
+        Path accountsTemp = directory.resolve(ACCOUNTS_FILE + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(accountsTemp.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos, BUFFER_SIZE))) {
+            writeHeader(out, accountsLsn);
+            out.writeInt(accounts.size());
+            for (Account account : accounts.values()) {
+                RecordCodec.writeAccount(out, account);
+            }
+            out.flush();
+            fos.getFD().sync();
+        }
+        
+        Files.move(accountsTemp, directory.resolve(ACCOUNTS_FILE),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    @Override
+    public void accountOpened(long lsn, Account account) {
+        if (lsn > accountsLsn) {
+            accounts.put(account.getAccountNumber(), account);
+        }
+    }
+    
+    @Override
+    public void transactionPosted(long lsn, Transaction transaction) {
+        if (lsn > accountsLsn) {
+            applyToAccount(transaction);
+        }
+    }
+    
+    public Map<String, Account> getAccounts() {
+        return accounts;
+    }
+    
+    /**
+     * Newest journal LSN reflected in this snapshot
+     */
+    public long getLsn() {
+        return accountsLsn;
+    }
+    
+    /**
+     * Re-apply a journaled transaction to its account balance
+     * Concurrent postings to one account may be journaled in a different
+     * order than they hit the balance, so limits are not re-checked here;
+     * they were enforced when the transaction was made
+     */
+    private void applyToAccount(Transaction transaction) {
+        Account account = accounts.get(transaction.getAccountNumber());
+        if (account == null) {
+            throw new IllegalStateException("Journal references unknown account "
+                    + transaction.getAccountNumber());
+        }
+        long cents = Money.toCents(transaction.getAmount());
+        switch (transaction.getTransactionType()) {
+            case "DEPOSIT":
+            case "TRANSFER_IN":
+            case "INTEREST":
+                account.adjustBalanceCents(cents);
+                break;
+            case "WITHDRAWAL":
+            case "TRANSFER_OUT":
+                account.adjustBalanceCents(-cents);
+                break;
+            default:
+                throw new IllegalStateException("Unknown transaction type "
+                        + transaction.getTransactionType());
+        }
+    }
+    
+    static DataInputStream openForRead(Path file) throws IOException {
+        return new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE));
+    }
+    
+    private static void writeHeader(DataOutputStream out, long lsn) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(RecordCodec.VERSION);
+        out.writeLong(lsn);
+    }
+    
+    /**
+     * Check the magic number and return the codec version of the file
+     * The caller reads the LSN that follows
+     */
+    static int readHeader(DataInputStream in, Path file) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException(file.getFileName() + " is not a snapshot file");
+        }
+        int version = in.readInt();
+        if (version < 1 || version > RecordCodec.VERSION) {
+            throw new IOException(file.getFileName() + " has unsupported version " + version);
+        }
+        return version;
+    }
+}
@@ -0,0 +1,146 @@
+package com.banking.persistence;
+
+/**
+ * StorageConfig - Settings for how BankService persists its data
+ * Setters return this so options can be chained
+ */
+public class StorageConfig {
+    private String dataDirectory;
+    private FsyncPolicy fsyncPolicy;
+    private int groupCommitSize;
+    private long groupCommitLingerMicros;
+    private long fsyncIntervalMillis;
+    private long checkpointIntervalSeconds;
+    private long checkpointJournalBytes;
+    private TransactionIdStrategy transactionIdStrategy;
+    private boolean offHeapAccounts;
+    
+    // Defaults keep every acknowledged operation on disk
+    public StorageConfig() {
+        this.dataDirectory = "data";
+        this.fsyncPolicy = FsyncPolicy.GROUP_COMMIT;
+        this.groupCommitSize = 256;
+        this.groupCommitLingerMicros = 200;
+        this.fsyncIntervalMillis = 50;
+        this.checkpointIntervalSeconds = 300;
+        this.checkpointJournalBytes = 64L * 1024 * 1024;
+        this.transactionIdStrategy = TransactionIdStrategy.SEQUENCE;
+        this.offHeapAccounts = false;
+    }
+    
+    public String getDataDirectory() {
+        return dataDirectory;
+    }
+    
+    public StorageConfig setDataDirectory(String dataDirectory) {
+        this.dataDirectory = dataDirectory;
+        return this;
+    }
+    
+    public FsyncPolicy getFsyncPolicy() {
+        return fsyncPolicy;
+    }
+    
+    public StorageConfig setFsyncPolicy(FsyncPolicy fsyncPolicy) {
+        this.fsyncPolicy = fsyncPolicy;
+        return this;
+    }
+    
+    /**
+     * Most operations written together by one fsync under GROUP_COMMIT
+     */
+    public int getGroupCommitSize() {
+        return groupCommitSize;
+    }
+    
+    public StorageConfig setGroupCommitSize(int groupCommitSize) {
+        if (groupCommitSize < 1) {
+            throw new IllegalArgumentException("Group commit size must be at least 1");
+        }
+        this.groupCommitSize = groupCommitSize;
+        return this;
+    }
+    
+    /**
+     * How long the first operation of a group waits for others to join it
+     */
+    public long getGroupCommitLingerMicros() {
+        return groupCommitLingerMicros;
+    }
+    
+    public StorageConfig setGroupCommitLingerMicros(long groupCommitLingerMicros) {
+        if (groupCommitLingerMicros < 0) {
+            throw new IllegalArgumentException("Linger time cannot be negative");
+        }
+        this.groupCommitLingerMicros = groupCommitLingerMicros;
+        return this;
+    }
+    
+    /**
+     * Time between background fsyncs under INTERVAL
+     */
+    public long getFsyncIntervalMillis() {
+        return fsyncIntervalMillis;
+    }
+    
+    public StorageConfig setFsyncIntervalMillis(long fsyncIntervalMillis) {
+        if (fsyncIntervalMillis < 1) {
+            throw new IllegalArgumentException("Fsync interval must be at least 1 ms");
+        }
+        this.fsyncIntervalMillis = fsyncIntervalMillis;
+        return this;
+    }
+    
+    /**
+     * Longest time between background checkpoints
+     */
+    public long getCheckpointIntervalSeconds() {
+        return checkpointIntervalSeconds;
+    }
+    
+    public StorageConfig setCheckpointIntervalSeconds(long checkpointIntervalSeconds) {
+        if (checkpointIntervalSeconds < 1) {
+            throw new IllegalArgumentException("Checkpoint interval must be at least 1 second");
+        }
+        this.checkpointIntervalSeconds = checkpointIntervalSeconds;
+        return this;
+    }
+    
+    /**
+     * Journal size that triggers a checkpoint before the interval elapses
+     * Bounds how much journal a restart has to replay
+     */
+    public long getCheckpointJournalBytes() {
+        return checkpointJournalBytes;
+    }
+    
+    public StorageConfig setCheckpointJournalBytes(long checkpointJournalBytes) {
+        if (checkpointJournalBytes < 1) {
+            throw new IllegalArgumentException("Checkpoint journal size must be positive");
+        }
+        this.checkpointJournalBytes = checkpointJournalBytes;
+        return this;
+    }
+    
+    public TransactionIdStrategy getTransactionIdStrategy() {
+        return transactionIdStrategy;
+    }
+    
+    public StorageConfig setTransactionIdStrategy(TransactionIdStrategy transactionIdStrategy) {
+        this.transactionIdStrategy = transactionIdStrategy;
+        return this;
+    }
+    
+    /**
+     * Keep account state in a mapped AccountSlots file instead of heap
+     * objects (for very large account counts)
+     */
+    public boolean isOffHeapAccounts() {
+        return offHeapAccounts;
+    }
+    
+    public StorageConfig setOffHeapAccounts(boolean offHeapAccounts) {
+        this.offHeapAccounts = offHeapAccounts;
+        return this;
+    }
+}
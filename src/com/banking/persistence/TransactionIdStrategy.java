@@ -0,0 +1,26 @@
+package com.banking.persistence;
+
+/**
+ * TransactionIdStrategy - How new transaction ids are generated
+ * All strategies are lock-free on the posting path and keep increasing
+ * across restarts
+ */
+public enum TransactionIdStrategy {
+    /**
+     * One shared atomic counter: dense ids in posting order
+     */
+    SEQUENCE,
+    
+    /**
+     * Each thread takes a block of ids from the shared counter and issues
+     * them without touching shared state; ids are unique but interleave
+     * between threads, and an unfinished block is skipped at shutdown
+     */
+    THREAD_BLOCK,
+    
+    /**
+     * Milliseconds since 2024-01-01 in the high bits and a sequence in the
+     * low 20 bits, so ids sort by creation time
+     */
+    TIME_ORDERED
+}
@@ -0,0 +1,850 @@
+package com.banking.persistence;
+
+import com.banking.model.*;
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * TransactionLog - Transaction history kept in memory-mapped segment files
+ * Each segment stores its records column by column (struct of arrays):
+ * all ids, then all timestamps, then all amounts, and so on, so field f
+ * of record i sits at a known offset and history is read straight out of
+ * the mapped pages. Time-range searches and type filters touch only the
+ * timestamp and type columns. Only the transactions a caller asks for
+ * become objects, at the API boundary; heap use does not grow with the
+ * length of the history beyond one int per record in the account index.
+ *
+ * Account numbers and any non-standard type or description text are
+ * stored once in a string dictionary and referenced by index, so the
+ * account column holds a dense int handle. An in-memory AccountIndex
+ * lists each account's record numbers, so one account's history costs
+ * O(its entries), not O(ledger size).
+ *
+ * The journal is still what makes a posting durable. Records are written
+ * into the mapping as the journal accepts them (it is the journal's
+ * AppendListener, so both share one order) and forced by checkpoint(), which
+ * then records in ledger.head how many records the files hold and which
+ * journal LSN they cover. Records past that count are ignored on open
+ * and rebuilt by journal replay.
+ *
+ * Segment columns (RECORDS_PER_SEGMENT values each, 43 bytes per record)
+ *   long  numeric id, or dictionary index of a non-numeric id
+ *   long  timestamp, epoch micros
+ *   long  amount, cents
+ *   long  balance after, cents
+ *   int   account number (dictionary index)
+ *   int   counterparty account or description text (dictionary index)
+ *   byte  type code
+ *   byte  description kind
+ *   byte  digits the id is rendered with, 0 when it is in the dictionary
+ *
+ * Account openings have no record of their own; they are appended to
+ * ledger-openings.bin as [int length][int record number][account], the
+ * record number being the ledger size when the account was opened, and
+ * counted in ledger.head like the records. Together with the records
+ * they form the change feed read by readChanges(): change offset n is
+ * the n-th opening or record in posting order, with an opening placed
+ * before the records that follow it. The feed ends at the last change
+ * whose journal write has completed (see committed()), so an offset a
+ * consumer has seen is replayed into the same place after a crash.
+ *
+ * Ledgers written by older versions (48-byte rows, ledger-*.seg) are
+ * converted on open by LegacyDataMigrator.
+ */
+public final class TransactionLog implements Journal.AppendListener, Closeable {
+    public static final int RECORD_SIZE = 43;
+    private static final int RECORDS_PER_SEGMENT = 1 << 18;
+    private static final long SEGMENT_BYTES = (long) RECORDS_PER_SEGMENT * RECORD_SIZE;
+    
+    // Start of each column within a segment
+    private static final int ID = 0;
+    private static final int TIMESTAMP = ID + 8 * RECORDS_PER_SEGMENT;
+    private static final int AMOUNT = TIMESTAMP + 8 * RECORDS_PER_SEGMENT;
+    private static final int BALANCE_AFTER = AMOUNT + 8 * RECORDS_PER_SEGMENT;
+    private static final int ACCOUNT = BALANCE_AFTER + 8 * RECORDS_PER_SEGMENT;
+    private static final int DESCRIPTION = ACCOUNT + 4 * RECORDS_PER_SEGMENT;
+    private static final int TYPE_CODE = DESCRIPTION + 4 * RECORDS_PER_SEGMENT;
+    private static final int DESCRIPTION_KIND = TYPE_CODE + RECORDS_PER_SEGMENT;
+    private static final int ID_DIGITS = DESCRIPTION_KIND + RECORDS_PER_SEGMENT;
+    private static final int[] COLUMNS = {
+        ID, TIMESTAMP, AMOUNT, BALANCE_AFTER, ACCOUNT, DESCRIPTION, TYPE_CODE, DESCRIPTION_KIND, ID_DIGITS
+    };
+    private static final int[] WIDTHS = { 8, 8, 8, 8, 4, 4, 1, 1, 1 };
+    
+    private static final byte DESCRIPTION_STANDARD = 0;
+    private static final byte DESCRIPTION_TRANSFER = 1;
+    private static final byte DESCRIPTION_TEXT = 2;
+    // Non-standard type: one dictionary entry holds type text, '\0', description
+    private static final byte DESCRIPTION_TYPED = 3;
+    private static final char TYPED_SEPARATOR = '\0';
+    private static final int NO_REF = -1;
+    
+    private static final int HEAD_MAGIC = 0x474C4447; // "GLDG"
+    static final int ROW_HEAD_VERSION = 1;
+    private static final int HEAD_VERSION = 3;
+    private static final int NO_OPENINGS_HEAD_VERSION = 2;
+    private static final int OPENINGS_NOT_RECORDED = -1;
+    private static final String HEAD_FILE = "ledger.head";
+    private static final String STRINGS_FILE = "ledger-strings.bin";
+    private static final String OPENINGS_FILE = "ledger-openings.bin";
+    private static final String SEGMENT_PREFIX = "ledger-";
+    private static final String SEGMENT_SUFFIX = ".col";
+    
+    private final Path directory;
+    private final List<MappedByteBuffer> segments;
+    private final List<String> strings;
+    private final Map<String, Integer> stringIndex;
+    private final AccountIndex accountIndex;
+    private final ByteArrayOutputStream openingBytes;
+    private FileOutputStream stringsFile;
+    private DataOutputStream stringsOut;
+    private FileOutputStream openingsFile;
+    private DataOutputStream openingsOut;
+    private FileChannel openingsIn;
+    private int[] openedAt;
+    private long[] openingOffsets;
+    private int openingCount;
+    private long openingsEnd;
+    private boolean openingsRecorded;
+    private long count;
+    private long durableCount;
+    private long lsn;
+    private long nextTransactionNumber;
+    private long cutLsn;
+    private long cutCount;
+    private int cutOpenings;
+    private final ArrayDeque<long[]> uncommitted;
+    private long committedChanges;
+    private boolean commitFailed;
+    
+    public TransactionLog(Path directory) throws IOException {
+        this.directory = directory;
+        this.segments = new ArrayList<>();
+        this.strings = new ArrayList<>();
+        this.stringIndex = new HashMap<>();
+        this.accountIndex = new AccountIndex();
+        this.openingBytes = new ByteArrayOutputStream(128);
+        this.openedAt = new int[16];
+        this.openingOffsets = new long[16];
+        this.uncommitted = new ArrayDeque<>();
+        this.nextTransactionNumber = 1;
+        this.cutLsn = -1;
+        
+        int stringCount = 0;
+        int openings = OPENINGS_NOT_RECORDED;
+        int version = HEAD_VERSION;
+        Path headFile = directory.resolve(HEAD_FILE);
+        if (Files.exists(headFile)) {
+            try (DataInputStream in = new DataInputStream(Files.newInputStream(headFile))) {
+                version = in.readInt() == HEAD_MAGIC ? in.readInt() : -1;
+                if (version != HEAD_VERSION && version != NO_OPENINGS_HEAD_VERSION
+                        && version != ROW_HEAD_VERSION) {
+                    throw new IOException(HEAD_FILE + " is not a ledger head file");
+                }
+                count = in.readLong();
+                lsn = in.readLong();
+                stringCount = in.readInt();
+                openings = version == HEAD_VERSION ? in.readInt() : OPENINGS_NOT_RECORDED;
+            }
+        }
+        loadStrings(stringCount);
+        loadOpenings(openings);
+        if (version == ROW_HEAD_VERSION) {
+            long rows = count;
+            count = 0;
+            LegacyDataMigrator.migrateRowLedger(directory, rows, lsn, strings, this);
+            return;
+        }
+        durableCount = count;
+        
+        for (int segment = 0; (long) segment * RECORDS_PER_SEGMENT < count; segment++) {
+            if (!Files.exists(segmentPath(segment))) {
+                throw new IOException("Ledger segment " + segmentPath(segment).getFileName() + " is missing");
+            }
+            segments.add(mapSegment(segment));
+        }
+        rebuildIndex();
+        committedChanges = count + openingCount;
+    }
+    
+    /**
+     * Append a transaction to the end of the log
+     */
+    public synchronized void append(Transaction transaction) {
+        try {
+            int segment = segmentOf(count);
+            if (segment == segments.size()) {
+                segments.add(mapSegment(segment));
+            }
+            if (count == Integer.MAX_VALUE) {
+                throw new IllegalStateException("Ledger is full");
+            }
+            MappedByteBuffer buffer = segments.get(segment);
+            int slot = slotOf(count);
+            
+            long number = transaction.getTransactionNumber();
+            int idDigits = number != Transaction.NO_NUMBER ? RecordCodec.idDigits(number) : 0;
+            long id = idDigits > 0 ? number : intern(transaction.getTransactionId());
+            
+            String type = transaction.getTransactionType();
+            byte typeCode = RecordCodec.typeCode(type);
+            
+            String description = transaction.getDescription();
+            String prefix = RecordCodec.transferPrefix(type);
+            byte descriptionKind;
+            int descriptionRef;
+            if (typeCode == RecordCodec.TYPE_OTHER) {
+                descriptionKind = DESCRIPTION_TYPED;
+                descriptionRef = intern(type + TYPED_SEPARATOR + description);
+            } else if (RecordCodec.isStandardDescription(type, description)) {
+                descriptionKind = DESCRIPTION_STANDARD;
+                descriptionRef = NO_REF;
+            } else if (prefix != null && description.startsWith(prefix)) {
+                descriptionKind = DESCRIPTION_TRANSFER;
+                descriptionRef = intern(description.substring(prefix.length()));
+            } else {
+                descriptionKind = DESCRIPTION_TEXT;
+                descriptionRef = intern(description);
+            }
+            
+            buffer.putLong(ID + slot * 8, id);
+            buffer.putLong(TIMESTAMP + slot * 8, RecordCodec.toEpochMicros(transaction.getTimestamp()));
+            buffer.putLong(AMOUNT + slot * 8, Money.toCents(transaction.getAmount()));
+            buffer.putLong(BALANCE_AFTER + slot * 8, Money.toCents(transaction.getBalanceAfter()));
+            int account = intern(transaction.getAccountNumber());
+            buffer.putInt(ACCOUNT + slot * 4, account);
+            buffer.putInt(DESCRIPTION + slot * 4, descriptionRef);
+            buffer.put(TYPE_CODE + slot, typeCode);
+            buffer.put(DESCRIPTION_KIND + slot, descriptionKind);
+            buffer.put(ID_DIGITS + slot, (byte) idDigits);
+            accountIndex.add(account, (int) count);
+            count++;
+            if (idDigits > 0) {
+                nextTransactionNumber = Math.max(nextTransactionNumber, id + 1);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    /**
+     * Read record index (0-based, in posting order) as a Transaction
+     */
+    public synchronized Transaction get(long index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Ledger record " + index + " of " + count);
+        }
+        return read(segments.get(segmentOf(index)), slotOf(index));
+    }
+    
+    /**
+     * All transactions of one account, oldest first
+     * Reads only the account's own records, found through the account index
+     */
+    public synchronized List<Transaction> findByAccount(String accountNumber) {
+        Integer account = stringIndex.get(accountNumber);
+        if (account == null) {
+            return new ArrayList<>();
+        }
+        int size = accountIndex.size(account);
+        List<Transaction> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            int record = accountIndex.get(account, i);
+            result.add(read(segments.get(segmentOf(record)), slotOf(record)));
+        }
+        return result;
+    }
+    
+    /**
+     * Up to maxCount transactions of one account, oldest first, starting
+     * at a position in its history
+     */
+    public synchronized List<Transaction> findByAccount(String accountNumber, int fromPosition, int maxCount) {
+        Integer account = stringIndex.get(accountNumber);
+        int size = account == null ? 0 : accountIndex.size(account);
+        int from = Math.min(Math.max(fromPosition, 0), size);
+        int to = (int) Math.min((long) from + maxCount, size);
+        List<Transaction> result = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            int record = accountIndex.get(account, i);
+            result.add(read(segments.get(segmentOf(record)), slotOf(record)));
+        }
+        return result;
+    }
+    
+    /**
+     * Number of transactions of one account, from the account index
+     */
+    public synchronized int countByAccount(String accountNumber) {
+        Integer account = stringIndex.get(accountNumber);
+        return account == null ? 0 : accountIndex.size(account);
+    }
+    
+    /**
+     * One page of an account's history, walked lazily through the account index
+     * Time bounds are found by binary search, and the walk stops at the
+     * first posting past the range; type filters compare the stored type
+     * code, so skipped records are never materialized.
+     *
+     * This assumes an account's timestamps never decrease in posting
+     * order. They are local wall-clock times (LocalDateTime.now()), so a
+     * clock set back or the end of daylight saving time breaks that: a
+     * range that reaches into the repeated period may miss or include
+     * postings next to the step. Pages without time bounds are not
+     * affected, since they are walked by position.
+     */
+    public synchronized HistoryPage findPage(HistoryQuery query) {
+        Integer account = stringIndex.get(query.getAccountNumber());
+        int size = account == null ? 0 : accountIndex.size(account);
+        List<Transaction> page = new ArrayList<>(Math.min(query.getPageSize(), size));
+        if (size == 0) {
+            return new HistoryPage(page, null);
+        }
+        
+        long fromMicros = query.getFrom() == null ? Long.MIN_VALUE : RecordCodec.toEpochMicros(query.getFrom());
+        long toMicros = query.getTo() == null ? Long.MAX_VALUE : RecordCodec.toEpochMicros(query.getTo());
+        boolean newestFirst = query.isNewestFirst();
+        int step = newestFirst ? -1 : 1;
+        int position;
+        if (query.getContinuationToken() != null) {
+            position = decodeToken(query.getContinuationToken(), size);
+        } else if (newestFirst) {
+            position = firstAfter(account, toMicros) - 1;
+        } else {
+            position = query.getFrom() == null ? 0 : firstAfter(account, fromMicros - 1);
+        }
+        
+        boolean[] codes = null;
+        Set<String> types = query.getTransactionTypes();
+        if (!types.isEmpty()) {
+            codes = new boolean[Byte.MAX_VALUE + 1];
+            for (String type : types) {
+                codes[RecordCodec.typeCode(type)] = true;
+            }
+        }
+        
+        while (position >= 0 && position < size && page.size() < query.getPageSize()) {
+            int record = accountIndex.get(account, position);
+            MappedByteBuffer buffer = segments.get(segmentOf(record));
+            int slot = slotOf(record);
+            long micros = buffer.getLong(TIMESTAMP + slot * 8);
+            if (newestFirst ? micros < fromMicros : micros > toMicros) {
+                position = -1;
+                break;
+            }
+            if (micros >= fromMicros && micros <= toMicros && matchesType(buffer, slot, codes, types)) {
+                page.add(read(buffer, slot));
+            }
+            position += step;
+        }
+        String token = position >= 0 && position < size ? Integer.toString(position, Character.MAX_RADIX) : null;
+        return new HistoryPage(page, token);
+    }
+    
+    /**
+     * Accounts with a posting of this type and description at or after
+     * record fromRecord
+     * Compares the type and description columns only; used to find what
+     * an interrupted bulk run already posted
+     */
+    public synchronized Set<String> findAccountsPosted(long fromRecord, String type, String description) {
+        Set<String> found = new HashSet<>();
+        Integer descriptionRef = stringIndex.get(description);
+        byte typeCode = RecordCodec.typeCode(type);
+        if (descriptionRef == null || typeCode == RecordCodec.TYPE_OTHER) {
+            return found;
+        }
+        for (long index = Math.max(0, fromRecord); index < count; index++) {
+            MappedByteBuffer buffer = segments.get(segmentOf(index));
+            int slot = slotOf(index);
+            if (buffer.get(TYPE_CODE + slot) == typeCode
+                    && buffer.get(DESCRIPTION_KIND + slot) == DESCRIPTION_TEXT
+                    && buffer.getInt(DESCRIPTION + slot * 4) == descriptionRef) {
+                found.add(strings.get(buffer.getInt(ACCOUNT + slot * 4)));
+            }
+        }
+        return found;
+    }
+    
+    /**
+     * Number of transactions in the log
+     */
+    public synchronized long size() {
+        return count;
+    }
+    
+    /**
+     * Next free TXN number, one past the highest id in the log
+     */
+    public synchronized long getNextTransactionNumber() {
+        return nextTransactionNumber;
+    }
+    
+    /**
+     * Journal LSN covered by the records forced at the last checkpoint
+     */
+    public synchronized long getLsn() {
+        return lsn;
+    }
+    
+    /**
+     * Number of committed change feed entries: account openings plus records
+     */
+    public synchronized long getChangeCount() {
+        return committedChanges;
+    }
+    
+    /**
+     * Up to maxCount committed changes in posting order, starting at change
+     * offset fromOffset (see the class comment); empty once the end is reached
+     * Both files are read front to back from the offset on, so replaying
+     * the whole feed is one sequential pass
+     */
+    public synchronized List<ChangeEvent> readChanges(long fromOffset, int maxCount) {
+        long end = committedChanges;
+        if (fromOffset < 0 || fromOffset > end) {
+            throw new IndexOutOfBoundsException("Change offset " + fromOffset + " of " + end);
+        }
+        // Openings before fromOffset: opening i sits at change offset openedAt[i] + i
+        int low = 0;
+        int high = openingCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (openedAt[middle] + (long) middle < fromOffset) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        int opening = low;
+        long record = fromOffset - opening;
+        
+        List<ChangeEvent> changes = new ArrayList<>((int) Math.min(maxCount, end - fromOffset));
+        DataInputStream openings = null;
+        try {
+            for (long offset = fromOffset; offset < end && changes.size() < maxCount; offset++) {
+                if (opening < openingCount && openedAt[opening] <= record) {
+                    if (openings == null) {
+                        openingsOut.flush();
+                        openingsIn.position(openingOffsets[opening]);
+                        openings = new DataInputStream(new BufferedInputStream(Channels.newInputStream(openingsIn)));
+                    }
+                    openings.readInt();
+                    openings.readInt();
+                    changes.add(new ChangeEvent(offset, RecordCodec.readAccount(openings, RecordCodec.VERSION)));
+                    opening++;
+                } else {
+                    changes.add(new ChangeEvent(offset, read(segments.get(segmentOf(record)), slotOf(record))));
+                    record++;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read " + OPENINGS_FILE, e);
+        }
+        return changes;
+    }
+    
+    /**
+     * True until the accounts opened before ledger-openings.bin existed
+     * have been recorded with recordExistingAccounts
+     */
+    public synchronized boolean needsExistingAccounts() {
+        return !openingsRecorded;
+    }
+    
+    /**
+     * Record every account opened so far at the start of the change feed
+     * Called once, after the journal is replayed, when the ledger was
+     * written by a version that kept no openings
+     */
+    public synchronized void recordExistingAccounts(Collection<Account> accounts) {
+        if (openingsRecorded) {
+            throw new IllegalStateException("Account openings are already recorded");
+        }
+        openingsRecorded = true;
+        for (Account account : accounts) {
+            appendOpening(account, 0);
+        }
+    }
+    
+    /**
+     * Openings replayed before recordExistingAccounts are left to it
+     */
+    @Override
+    public synchronized void accountOpened(long lsn, Account account) {
+        if (openingsRecorded && lsn > this.lsn) {
+            appendOpening(account, (int) count);
+            noteUncommitted(lsn);
+        }
+    }
+    
+    /**
+     * A record that cannot be appended would leave a gap in the feed's
+     * offsets, so the feed stops before it
+     */
+    @Override
+    public synchronized void transactionPosted(long lsn, Transaction transaction) {
+        if (lsn > this.lsn) {
+            try {
+                append(transaction);
+            } catch (UncheckedIOException e) {
+                stopFeed();
+                throw e;
+            }
+            noteUncommitted(lsn);
+        }
+    }
+    
+    /**
+     * Move the end of the change feed past the operation at lsn once its
+     * journal write completed; after a failed write the feed stays before
+     * it, as that operation will not be replayed. Also called after
+     * startup replay, with the last LSN replayed.
+     */
+    @Override
+    public synchronized void committed(long lsn, boolean written) {
+        if (commitFailed) {
+            return;
+        }
+        if (!written) {
+            stopFeed();
+            return;
+        }
+        while (!uncommitted.isEmpty() && uncommitted.peekFirst()[0] <= lsn) {
+            committedChanges = uncommitted.pollFirst()[1];
+        }
+        if (uncommitted.isEmpty()) {
+            // Also covers changes added without an LSN (recordExistingAccounts)
+            committedChanges = count + openingCount;
+        }
+    }
+    
+    /**
+     * Remember how many records the journal holds at lsn
+     * Called by the journal at the epoch cut, between two postings
+     */
+    @Override
+    public synchronized void cut(long lsn) {
+        cutLsn = lsn;
+        cutCount = count;
+        cutOpenings = openingsRecorded ? openingCount : OPENINGS_NOT_RECORDED;
+    }
+    
+    /**
+     * Force the records up to the cut at lsn and record them in ledger.head
+     * Postings made since the cut keep going into the mapping meanwhile
+     */
+    public void checkpoint(long lsn) throws IOException {
+        long from;
+        long upTo;
+        int stringCount;
+        int openings;
+        List<MappedByteBuffer> view;
+        synchronized (this) {
+            if (cutLsn != lsn) {
+                throw new IOException("No ledger cut recorded at LSN " + lsn);
+            }
+            from = durableCount;
+            upTo = cutCount;
+            view = new ArrayList<>(segments);
+            stringsOut.flush();
+            stringsFile.getFD().sync();
+            stringCount = strings.size();
+            openingsOut.flush();
+            openingsFile.getFD().sync();
+            openings = cutOpenings;
+        }
+        
+        for (long index = from; index < upTo; ) {
+            int segment = segmentOf(index);
+            long segmentEnd = Math.min(upTo, (long) (segment + 1) * RECORDS_PER_SEGMENT);
+            int start = slotOf(index);
+            int records = (int) (segmentEnd - index);
+            for (int column = 0; column < COLUMNS.length; column++) {
+                view.get(segment).force(COLUMNS[column] + start * WIDTHS[column], records * WIDTHS[column]);
+            }
+            index = segmentEnd;
+        }
+        writeHead(upTo, lsn, stringCount, openings);
+        
+        synchronized (this) {
+            durableCount = upTo;
+            this.lsn = lsn;
+        }
+    }
+    
+    @Override
+    public synchronized void close() throws IOException {
+        stringsOut.close();
+        openingsOut.close();
+        openingsIn.close();
+        segments.clear();
+    }
+    
+    /**
+     * Remember where the change feed ends once the operation at lsn is
+     * committed; the legs of one operation share an entry
+     */
+    private void noteUncommitted(long lsn) {
+        if (commitFailed) {
+            return;
+        }
+        long[] last = uncommitted.peekLast();
+        if (last != null && last[0] == lsn) {
+            last[1] = count + openingCount;
+        } else {
+            uncommitted.addLast(new long[] { lsn, count + openingCount });
+        }
+    }
+    
+    private void stopFeed() {
+        if (!commitFailed) {
+            commitFailed = true;
+            uncommitted.clear();
+            System.out.println("Warning: Change feed stops at offset " + committedChanges
+                    + " until restart - a posting was not saved");
+        }
+    }
+    
+    /**
+     * Materialize the record in one slot of a segment
+     */
+    private Transaction read(MappedByteBuffer buffer, int slot) {
+        int idDigits = buffer.get(ID_DIGITS + slot);
+        long id = buffer.getLong(ID + slot * 8);
+        
+        byte typeCode = buffer.get(TYPE_CODE + slot);
+        String type;
+        String description;
+        int descriptionRef = buffer.getInt(DESCRIPTION + slot * 4);
+        try {
+            switch (buffer.get(DESCRIPTION_KIND + slot)) {
+                case DESCRIPTION_STANDARD:
+                    type = RecordCodec.typeName(typeCode);
+                    description = RecordCodec.standardDescription(type);
+                    break;
+                case DESCRIPTION_TRANSFER:
+                    type = RecordCodec.typeName(typeCode);
+                    description = RecordCodec.transferPrefix(type) + strings.get(descriptionRef);
+                    break;
+                case DESCRIPTION_TYPED:
+                    String typed = strings.get(descriptionRef);
+                    int separator = typed.indexOf(TYPED_SEPARATOR);
+                    type = typed.substring(0, separator);
+                    description = typed.substring(separator + 1);
+                    break;
+                default:
+                    type = RecordCodec.typeName(typeCode);
+                    description = strings.get(descriptionRef);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Damaged ledger record in slot " + slot, e);
+        }
+        
+        String accountNumber = strings.get(buffer.getInt(ACCOUNT + slot * 4));
+        double amount = Money.toAmount(buffer.getLong(AMOUNT + slot * 8));
+        double balanceAfter = Money.toAmount(buffer.getLong(BALANCE_AFTER + slot * 8));
+        LocalDateTime timestamp = RecordCodec.fromEpochMicros(buffer.getLong(TIMESTAMP + slot * 8));
+        if (idDigits > 0 && idDigits == RecordCodec.idDigits(id)) {
+            return new Transaction(id, accountNumber, type, amount, balanceAfter, description, timestamp);
+        }
+        String transactionId = idDigits > 0
+                ? RecordCodec.TRANSACTION_ID_PREFIX + RecordCodec.padDigits(id, idDigits)
+                : strings.get((int) id);
+        return new Transaction(transactionId, accountNumber, type, amount, balanceAfter, description, timestamp);
+    }
+    
+    /**
+     * Position of the account's first posting stamped after micros (size if none)
+     */
+    private int firstAfter(int account, long micros) {
+        int low = 0;
+        int high = accountIndex.size(account);
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int record = accountIndex.get(account, middle);
+            if (segments.get(segmentOf(record)).getLong(TIMESTAMP + slotOf(record) * 8) > micros) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+    
+    private boolean matchesType(MappedByteBuffer buffer, int slot, boolean[] codes, Set<String> types) {
+        if (codes == null) {
+            return true;
+        }
+        byte typeCode = buffer.get(TYPE_CODE + slot);
+        if (typeCode != RecordCodec.TYPE_OTHER) {
+            return codes[typeCode];
+        }
+        String typed = strings.get(buffer.getInt(DESCRIPTION + slot * 4));
+        return types.contains(typed.substring(0, typed.indexOf(TYPED_SEPARATOR)));
+    }
+    
+    private static int decodeToken(String token, int size) {
+        try {
+            int position = Integer.parseInt(token, Character.MAX_RADIX);
+            if (position >= 0 && position < size) {
+                return position;
+            }
+        } catch (NumberFormatException e) {
+            // fall through
+        }
+        throw new IllegalArgumentException("Invalid continuation token");
+    }
+    
+    /**
+     * Rebuild the account index from the account field of every record
+     * Concurrent postings may land slightly out of id order, so the next
+     * id comes from the highest one seen rather than the last record
+     */
+    private void rebuildIndex() {
+        for (int index = 0; index < count; index++) {
+            MappedByteBuffer buffer = segments.get(segmentOf(index));
+            int slot = slotOf(index);
+            accountIndex.add(buffer.getInt(ACCOUNT + slot * 4), index);
+            if (buffer.get(ID_DIGITS + slot) > 0) {
+                nextTransactionNumber = Math.max(nextTransactionNumber, buffer.getLong(ID + slot * 8) + 1);
+            }
+        }
+    }
+    
+    /**
+     * Dictionary index of a string, adding it on first use
+     */
+    private int intern(String value) throws IOException {
+        Integer ref = stringIndex.get(value);
+        if (ref != null) {
+            return ref;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        stringsOut.writeInt(bytes.length);
+        stringsOut.write(bytes);
+        ref = strings.size();
+        strings.add(value);
+        stringIndex.put(value, ref);
+        return ref;
+    }
+    
+    /**
+     * Read the dictionary entries covered by the head file and cut off the rest
+     */
+    private void loadStrings(int stringCount) throws IOException {
+        Path file = directory.resolve(STRINGS_FILE);
+        long validEnd = 0;
+        if (Files.exists(file)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                for (int i = 0; i < stringCount; i++) {
+                    byte[] bytes = new byte[in.readInt()];
+                    in.readFully(bytes);
+                    String value = new String(bytes, StandardCharsets.UTF_8);
+                    stringIndex.put(value, strings.size());
+                    strings.add(value);
+                    validEnd += 4 + bytes.length;
+                }
+            }
+        } else if (stringCount > 0) {
+            throw new IOException(STRINGS_FILE + " is missing");
+        }
+        
+        stringsFile = new FileOutputStream(file.toFile(), true);
+        stringsFile.getChannel().truncate(validEnd);
+        stringsOut = new DataOutputStream(new BufferedOutputStream(stringsFile));
+    }
+    
+    /**
+     * Read the openings covered by the head file and cut off the rest
+     */
+    private void loadOpenings(int openings) throws IOException {
+        Path file = directory.resolve(OPENINGS_FILE);
+        openingsRecorded = openings != OPENINGS_NOT_RECORDED;
+        if (openings > 0) {
+            if (!Files.exists(file)) {
+                throw new IOException(OPENINGS_FILE + " is missing");
+            }
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                for (int i = 0; i < openings; i++) {
+                    int length = in.readInt();
+                    addOpening(in.readInt(), openingsEnd);
+                    RecordCodec.readAccount(in, RecordCodec.VERSION);
+                    openingsEnd += 4 + length;
+                }
+            }
+        }
+        
+        openingsFile = new FileOutputStream(file.toFile(), true);
+        openingsFile.getChannel().truncate(openingsEnd);
+        openingsOut = new DataOutputStream(new BufferedOutputStream(openingsFile));
+        openingsIn = FileChannel.open(file, StandardOpenOption.READ);
+    }
+    
+    private void appendOpening(Account account, int position) {
+        try {
+            openingBytes.reset();
+            DataOutputStream entry = new DataOutputStream(openingBytes);
+            entry.writeInt(position);
+            RecordCodec.writeAccount(entry, account);
+            openingsOut.writeInt(openingBytes.size());
+            openingBytes.writeTo(openingsOut);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        addOpening(position, openingsEnd);
+        openingsEnd += 4 + openingBytes.size();
+    }
+    
+    private void addOpening(int position, long offset) {
+        if (openingCount == openedAt.length) {
+            openedAt = Arrays.copyOf(openedAt, openingCount * 2);
+            openingOffsets = Arrays.copyOf(openingOffsets, openingCount * 2);
+        }
+        openedAt[openingCount] = position;
+        openingOffsets[openingCount] = offset;
+        openingCount++;
+    }
+    
+    private void writeHead(long records, long coveredLsn, int stringCount, int openings) throws IOException {
+        Path temp = directory.resolve(HEAD_FILE + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(temp.toFile());
+             DataOutputStream out = new DataOutputStream(fos)) {
+            out.writeInt(HEAD_MAGIC);
+            out.writeInt(HEAD_VERSION);
+            out.writeLong(records);
+            out.writeLong(coveredLsn);
+            out.writeInt(stringCount);
+            out.writeInt(openings);
+            out.flush();
+            fos.getFD().sync();
+        }
+        Files.move(temp, directory.resolve(HEAD_FILE),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    private MappedByteBuffer mapSegment(int segment) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentPath(segment), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, SEGMENT_BYTES);
+        }
+    }
+    
+    private Path segmentPath(int segment) {
+        return directory.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, segment, SEGMENT_SUFFIX));
+    }
+    
+    private static int segmentOf(long index) {
+        return (int) (index / RECORDS_PER_SEGMENT);
+    }
+    
+    private static int slotOf(long index) {
+        return (int) (index % RECORDS_PER_SEGMENT);
+    }
+}
@@ -0,0 +1,129 @@
+package com.banking.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Acceptor - Accept loop and connection tracking shared by the servers
+ * A platform thread accepts connections and starts one virtual thread per
+ * connection; open connections are tracked so close() can stop accepting
+ * and close every one of them. The server binds the listening socket and
+ * says how a connection is accepted and served.
+ */
+final class Acceptor<C extends Closeable> implements Closeable {
+    private static final long FIRST_BACKOFF_MILLIS = 10;
+    private static final long MAX_BACKOFF_MILLIS = 1000;
+    
+    /**
+     * Blocks for the next connection, with its socket options set
+     */
+    interface Source<C> {
+        C accept() throws IOException;
+    }
+    
+    /**
+     * The work of one connection; it must run onClose when it ends
+     */
+    interface Handler<C> {
+        Runnable connection(C connection, Runnable onClose);
+    }
+    
+    private final String name;
+    private final Closeable listener;
+    private final Source<C> source;
+    private final Handler<C> handler;
+    private final Set<C> connections;
+    private Thread thread;
+    private volatile boolean closed;
+    
+    private Acceptor(String name, Closeable listener, Source<C> source, Handler<C> handler) {
+        this.name = name;
+        this.listener = listener;
+        this.source = source;
+        this.handler = handler;
+        this.connections = ConcurrentHashMap.newKeySet();
+    }
+    
+    /**
+     * Start accepting on a bound listener; threads are named name-acceptor
+     * and name-connection
+     */
+    static <C extends Closeable> Acceptor<C> start(String name, Closeable listener, Source<C> source,
+                                                   Handler<C> handler) {
+        Acceptor<C> acceptor = new Acceptor<>(name, listener, source, handler);
+        acceptor.thread = Thread.ofPlatform().name(name + "-acceptor").daemon(true).start(acceptor::acceptLoop);
+        return acceptor;
+    }
+    
+    /**
+     * Connections currently open
+     */
+    int getConnectionCount() {
+        return connections.size();
+    }
+    
+    /**
+     * Wait until the accept loop ends (after close())
+     */
+    void join() throws InterruptedException {
+        thread.join();
+    }
+    
+    /**
+     * Stop accepting and close every open connection
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            listener.close();
+            // Cut short a back-off after a failed accept
+            thread.interrupt();
+            thread.join();
+        } catch (IOException e) {
+            System.out.println("Warning: Could not close server socket - " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (C connection : connections) {
+            try {
+                connection.close();
+            } catch (IOException e) {
+                // already gone
+            }
+        }
+    }
+    
+    private void acceptLoop() {
+        int failures = 0;
+        while (!closed) {
+            C connection;
+            try {
+                connection = source.accept();
+            } catch (IOException e) {
+                if (!closed) {
+                    System.out.println("Warning: Accept failed - " + e.getMessage());
+                    // A lasting failure (e.g. out of file descriptors) must not spin
+                    failures++;
+                    backOff(Math.min(MAX_BACKOFF_MILLIS, FIRST_BACKOFF_MILLIS << Math.min(failures - 1, 10)));
+                }
+                continue;
+            }
+            failures = 0;
+            connections.add(connection);
+            Thread.ofVirtual().name(name + "-connection")
+                    .start(handler.connection(connection, () -> connections.remove(connection)));
+        }
+    }
+    
+    private void backOff(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            closed = true;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.banking.server;
+
+import com.banking.model.*;
+import com.banking.service.BankService;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+/**
+ * BankApi - Maps HTTP requests onto BankService operations
+ *
+ *   GET  /accounts                              all accounts
+ *   POST /accounts?number=&holder=&type=        create an account
+ *   GET  /accounts/{number}                     one account and its balance
+ *   POST /accounts/{number}/deposit?amount=
+ *   POST /accounts/{number}/withdraw?amount=
+ *   GET  /accounts/{number}/history?pageSize=&token=&type=&from=&to=&order=newest
+ *   POST /transfers?from=&to=&amount=
+ *   GET  /totals                                deposits, overdraft exposure, accounts by type
+ *
+ * Parameters may also be sent as a form-encoded body. Postings answer
+ * once they are durable, like the synchronous BankService methods.
+ */
+class BankApi {
+    private static final String ACCOUNTS = "/accounts";
+    
+    private final BankService service;
+    
+    BankApi(BankService service) {
+        this.service = service;
+    }
+    
+    HttpResponse handle(HttpRequest request) {
+        String path = request.getPath();
+        if (path.equals("/transfers")) {
+            requireMethod(request, "POST");
+            return posting(service.transfer(request.required("from"), request.required("to"), amount(request)));
+        }
+        if (path.equals("/totals")) {
+            requireMethod(request, "GET");
+            return new HttpResponse(200, Json.totals(service.getAccountTotals()));
+        }
+        if (path.equals(ACCOUNTS)) {
+            if (request.getMethod().equals("GET")) {
+                return new HttpResponse(200, Json.accounts(service.getAllAccounts()));
+            }
+            requireMethod(request, "POST");
+            return createAccount(request);
+        }
+        if (!path.startsWith(ACCOUNTS + "/")) {
+            throw new HttpException(404, "No such resource");
+        }
+        
+        String rest = path.substring(ACCOUNTS.length() + 1);
+        int slash = rest.indexOf('/');
+        String accountNumber = slash < 0 ? rest : rest.substring(0, slash);
+        String action = slash < 0 ? "" : rest.substring(slash + 1);
+        Account account = service.getAccount(accountNumber);
+        if (account == null) {
+            throw new HttpException(404, "Account not found");
+        }
+        switch (action) {
+            case "":
+                requireMethod(request, "GET");
+                return new HttpResponse(200, Json.account(account));
+            case "deposit":
+                requireMethod(request, "POST");
+                return posting(service.deposit(accountNumber, amount(request)));
+            case "withdraw":
+                requireMethod(request, "POST");
+                return posting(service.withdraw(accountNumber, amount(request)));
+            case "history":
+                requireMethod(request, "GET");
+                return new HttpResponse(200, Json.page(service.getTransactionHistory(historyQuery(accountNumber, request))));
+            default:
+                throw new HttpException(404, "No such resource");
+        }
+    }
+    
+    private HttpResponse createAccount(HttpRequest request) {
+        String type = request.parameter("type");
+        try {
+            Account account = service.createAccount(request.required("number"), request.required("holder"),
+                    type == null ? "regular" : type);
+            return new HttpResponse(201, Json.account(account));
+        } catch (IllegalArgumentException e) {
+            throw new HttpException(409, e.getMessage());
+        }
+    }
+    
+    private HistoryQuery historyQuery(String accountNumber, HttpRequest request) {
+        HistoryQuery query = new HistoryQuery(accountNumber)
+                .setContinuationToken(request.parameter("token"))
+                .setNewestFirst("newest".equals(request.parameter("order")))
+                .setFrom(time(request.parameter("from")))
+                .setTo(time(request.parameter("to")));
+        List<String> types = request.parameters("type");
+        if (!types.isEmpty()) {
+            query.setTransactionTypes(types.toArray(new String[0]));
+        }
+        String pageSize = request.parameter("pageSize");
+        if (pageSize != null) {
+            try {
+                query.setPageSize(Integer.parseInt(pageSize));
+            } catch (IllegalArgumentException e) {
+                throw new HttpException(400, "Bad pageSize");
+            }
+        }
+        return query;
+    }
+    
+    /**
+     * A refused posting (insufficient funds, bad amount, unknown account)
+     * is a conflict rather than a success
+     */
+    private static HttpResponse posting(boolean applied) {
+        return new HttpResponse(applied ? 200 : 409, Json.result(applied));
+    }
+    
+    /**
+     * The amount parameter; anything Money cannot hold in cents
+     * (Infinity, NaN, 1e300) is a bad request
+     */
+    private static double amount(HttpRequest request) {
+        try {
+            double amount = Double.parseDouble(request.required("amount"));
+            Money.toCents(amount);
+            return amount;
+        } catch (IllegalArgumentException e) {
+            throw new HttpException(400, "Bad amount");
+        }
+    }
+    
+    private static LocalDateTime time(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return LocalDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new HttpException(400, "Bad time " + value);
+        }
+    }
+    
+    private static void requireMethod(HttpRequest request, String method) {
+        if (!request.getMethod().equals(method)) {
+            throw new HttpException(405, "Use " + method);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.banking.server;
+
+import com.banking.service.BankService;
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.Semaphore;
+
+/**
+ * BankServer - Embedded HTTP/1.1 front end for BankService
+ * One virtual thread per connection, blocking I/O: the JDK parks the
+ * virtual thread instead of an OS thread while it waits, so thousands of
+ * mostly idle keep-alive clients cost little. Connections are kept alive
+ * and may pipeline requests; a global in-flight limit bounds the work
+ * handed to BankService at once (see ServerConfig.setMaxInFlight).
+ * See BankApi for the resources served.
+ */
+public class BankServer implements Closeable {
+    private final ServerConfig config;
+    private final BankApi api;
+    private final Semaphore inFlight;
+    private ServerSocket serverSocket;
+    private volatile Acceptor<Socket> acceptor;
+    
+    public BankServer(BankService service, ServerConfig config) {
+        this.config = config;
+        this.api = new BankApi(service);
+        this.inFlight = new Semaphore(config.getMaxInFlight());
+    }
+    
+    /**
+     * Bind the port and start accepting connections
+     */
+    public synchronized void start() throws IOException {
+        if (serverSocket != null) {
+            throw new IllegalStateException("Server already started");
+        }
+        serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(new InetSocketAddress(config.getPort()), config.getBacklog());
+        acceptor = Acceptor.start("http", serverSocket, () -> {
+            Socket socket = serverSocket.accept();
+            socket.setTcpNoDelay(true);
+            return socket;
+        }, (socket, onClose) -> new HttpConnection(socket, api, inFlight, config, onClose));
+    }
+    
+    /**
+     * Port actually bound (useful with port 0)
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+    
+    /**
+     * Connections currently open
+     */
+    public int getConnectionCount() {
+        Acceptor<Socket> current = acceptor;
+        return current == null ? 0 : current.getConnectionCount();
+    }
+    
+    /**
+     * Stop accepting and close every open connection
+     * The BankService itself stays open
+     */
+    @Override
+    public synchronized void close() {
+        if (acceptor != null) {
+            acceptor.close();
+        }
+    }
+    
+    /**
+     * Run the HTTP, binary and change feed servers on the default data directory
+     * Usage: BankServer [httpPort [binaryPort [feedPort]]]
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        ServerConfig config = new ServerConfig();
+        if (args.length > 0) {
+            config.setPort(Integer.parseInt(args[0]));
+        }
+        if (args.length > 1) {
+            config.setBinaryPort(Integer.parseInt(args[1]));
+        }
+        if (args.length > 2) {
+            config.setFeedPort(Integer.parseInt(args[2]));
+        }
+        BankService service = new BankService();
+        BankServer server = new BankServer(service, config);
+        BinaryServer binaryServer = new BinaryServer(service, config);
+        ChangeFeedServer feedServer = new ChangeFeedServer(service, config);
+        server.start();
+        binaryServer.start();
+        feedServer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            binaryServer.close();
+            feedServer.close();
+            service.close();
+        }));
+        System.out.println("Gatewayz Banking server listening on port " + server.getPort()
+                + " (binary protocol on port " + binaryServer.getPort()
+                + ", change feed on localhost:" + feedServer.getPort() + ")");
+        server.acceptor.join();
+    }
+}
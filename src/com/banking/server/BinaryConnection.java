@@ -0,0 +1,241 @@
+package com.banking.server;
+
+import com.banking.model.Account;
+import com.banking.service.BankService;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * BinaryConnection - Serves one binary-protocol client on a virtual thread
+ * Frames are decoded straight out of a pooled direct read buffer and
+ * answered into a pooled direct write buffer; both are held for the life
+ * of the connection, so steady-state requests allocate no buffers. Every
+ * complete frame in a read is applied, then the postings of all of them
+ * are awaited together (sharing group commits) before the responses go
+ * out in one write.
+ *
+ * Postings go straight to BankService's handle-and-cents methods, with no
+ * per-operation futures or amount conversion. Only the buffers are
+ * pooled, though: a posting still allocates its Transaction records and
+ * journal entry, which the ledger and journal keep, and RESOLVE decodes
+ * an account number String, which a client does once per account.
+ */
+class BinaryConnection implements Runnable {
+    private static final int MAX_ACCOUNT_NUMBER_BYTES = 1024;
+    
+    private final SocketChannel channel;
+    private final BankService service;
+    private final BufferPool pool;
+    private final Semaphore inFlight;
+    private final Runnable onClose;
+    private final List<CompletableFuture<Long>> pending;
+    private final byte[] scratch;
+    private final int maxOps;
+    
+    BinaryConnection(SocketChannel channel, BankService service, BufferPool pool, Semaphore inFlight,
+                     Runnable onClose) {
+        this.channel = channel;
+        this.service = service;
+        this.pool = pool;
+        this.inFlight = inFlight;
+        this.onClose = onClose;
+        this.pending = new ArrayList<>();
+        this.scratch = new byte[MAX_ACCOUNT_NUMBER_BYTES];
+        this.maxOps = (pool.getBufferSize() - 4 - BinaryProtocol.FRAME_HEADER) / BinaryProtocol.RESULT_SIZE;
+    }
+    
+    @Override
+    public void run() {
+        ByteBuffer in = pool.acquire();
+        ByteBuffer out = pool.acquire();
+        try (SocketChannel client = channel) {
+            while (client.read(in) >= 0) {
+                in.flip();
+                inFlight.acquire();
+                try {
+                    while (hasFrame(in)) {
+                        if (out.remaining() < responseSize(in)) {
+                            flush(out);
+                        }
+                        processFrame(in, out);
+                    }
+                    flush(out);
+                } finally {
+                    inFlight.release();
+                }
+                in.compact();
+            }
+        } catch (IOException e) {
+            if (channel.isOpen()) {
+                System.out.println("Warning: Binary connection failed - " + e.getMessage());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            pool.release(in);
+            pool.release(out);
+            onClose.run();
+        }
+    }
+    
+    /**
+     * True if a whole frame is buffered; rejects frames that can never fit
+     */
+    private boolean hasFrame(ByteBuffer in) throws IOException {
+        if (in.remaining() < 4) {
+            return false;
+        }
+        int length = in.getInt(in.position());
+        if (length < BinaryProtocol.FRAME_HEADER || length > in.capacity() - 4) {
+            throw new IOException("Bad frame length " + length);
+        }
+        return in.remaining() >= 4 + length;
+    }
+    
+    private int responseSize(ByteBuffer in) {
+        int opCount = in.getShort(in.position() + 8) & 0xFFFF;
+        return 4 + BinaryProtocol.FRAME_HEADER + opCount * BinaryProtocol.RESULT_SIZE;
+    }
+    
+    private void processFrame(ByteBuffer in, ByteBuffer out) throws IOException {
+        int end = in.position() + 4 + in.getInt();
+        int correlationId = in.getInt();
+        int opCount = in.getShort() & 0xFFFF;
+        if (opCount > maxOps) {
+            throw new IOException("Frame with " + opCount + " operations exceeds the limit of " + maxOps);
+        }
+        out.putInt(BinaryProtocol.FRAME_HEADER + opCount * BinaryProtocol.RESULT_SIZE);
+        out.putInt(correlationId);
+        out.putShort((short) opCount);
+        
+        for (int i = 0; i < opCount; i++) {
+            if (in.position() >= end) {
+                throw new IOException("Frame " + correlationId + " is shorter than its operations");
+            }
+            byte op = in.get();
+            switch (op) {
+                case BinaryProtocol.RESOLVE:
+                    require(in, 2, end);
+                    int byteCount = in.getShort() & 0xFFFF;
+                    require(in, byteCount, end);
+                    if (byteCount > scratch.length) {
+                        throw new IOException("Account number of " + byteCount + " bytes is too long");
+                    }
+                    in.get(scratch, 0, byteCount);
+                    int handle = service.getAccountHandle(new String(scratch, 0, byteCount, StandardCharsets.UTF_8));
+                    result(out, handle < 0 ? BinaryProtocol.UNKNOWN_ACCOUNT : BinaryProtocol.OK, handle < 0 ? 0 : handle);
+                    break;
+                case BinaryProtocol.DEPOSIT:
+                case BinaryProtocol.WITHDRAW:
+                    require(in, 12, end);
+                    int accountHandle = in.getInt();
+                    long cents = in.getLong();
+                    if (service.getAccount(accountHandle) == null) {
+                        result(out, BinaryProtocol.UNKNOWN_ACCOUNT, 0);
+                    } else {
+                        posting(out, post(op, accountHandle, 0, cents));
+                    }
+                    break;
+                case BinaryProtocol.TRANSFER:
+                    require(in, 16, end);
+                    int fromHandle = in.getInt();
+                    int toHandle = in.getInt();
+                    long amount = in.getLong();
+                    if (service.getAccount(fromHandle) == null || service.getAccount(toHandle) == null) {
+                        result(out, BinaryProtocol.UNKNOWN_ACCOUNT, 0);
+                    } else {
+                        posting(out, post(op, fromHandle, toHandle, amount));
+                    }
+                    break;
+                case BinaryProtocol.BALANCE:
+                    require(in, 4, end);
+                    Account target = service.getAccount(in.getInt());
+                    if (target == null) {
+                        result(out, BinaryProtocol.UNKNOWN_ACCOUNT, 0);
+                    } else {
+                        result(out, BinaryProtocol.OK, target.getBalanceCents());
+                    }
+                    break;
+                default:
+                    // The rest of the frame cannot be parsed without knowing this op
+                    for (; i < opCount; i++) {
+                        result(out, BinaryProtocol.BAD_REQUEST, 0);
+                    }
+                    in.position(end);
+            }
+        }
+        if (in.position() != end) {
+            throw new IOException("Frame " + correlationId + " has trailing bytes");
+        }
+    }
+    
+    /**
+     * Apply a posting on this thread; returns its durability future, or
+     * null if it was refused
+     */
+    private CompletableFuture<Long> post(byte op, int accountHandle, int toHandle, long cents) {
+        try {
+            switch (op) {
+                case BinaryProtocol.DEPOSIT:
+                    return service.applyDepositCents(accountHandle, cents);
+                case BinaryProtocol.WITHDRAW:
+                    return service.applyWithdrawCents(accountHandle, cents);
+                default:
+                    return service.applyTransferCents(accountHandle, toHandle, cents);
+            }
+        } catch (RuntimeException e) {
+            System.out.println("Warning: Posting failed - " + e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * The outcome is known now; durability is awaited per batch in flush()
+     */
+    private void posting(ByteBuffer out, CompletableFuture<Long> durable) {
+        result(out, durable != null ? BinaryProtocol.OK : BinaryProtocol.REFUSED, 0);
+        if (durable != null) {
+            pending.add(durable);
+        }
+    }
+    
+    private static void result(ByteBuffer out, byte status, long value) {
+        out.put(status);
+        out.putLong(value);
+    }
+    
+    private static void require(ByteBuffer in, int bytes, int end) throws IOException {
+        if (in.position() + bytes > end) {
+            throw new IOException("Operation runs past the end of its frame");
+        }
+    }
+    
+    /**
+     * Wait until the buffered responses' postings are durable, then send them
+     * A posting that could not be made durable drops the connection, so
+     * the client never sees it acknowledged
+     */
+    private void flush(ByteBuffer out) throws IOException {
+        try {
+            for (CompletableFuture<Long> durable : pending) {
+                durable.join();
+            }
+        } catch (CompletionException e) {
+            throw new IOException("Could not make postings durable", e.getCause());
+        } finally {
+            pending.clear();
+        }
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        out.clear();
+    }
+}
@@ -0,0 +1,44 @@
+package com.banking.server;
+
+/**
+ * BinaryProtocol - Compact request/response frames for high-rate clients
+ * All integers are big-endian. Accounts are addressed by int handles that
+ * a client obtains once per account with RESOLVE; every other operation
+ * has a fixed width, and amounts are whole cents.
+ *
+ * Request frame:  [int length][int correlationId][short opCount] ops...
+ *   RESOLVE  [byte 1][short byteCount][UTF-8 account number]
+ *   DEPOSIT  [byte 2][int account][long cents]
+ *   WITHDRAW [byte 3][int account][long cents]
+ *   TRANSFER [byte 4][int from][int to][long cents]
+ *   BALANCE  [byte 5][int account]
+ * Response frame: [int length][int correlationId][short opCount]
+ *   then per op [byte status][long value]
+ *   value is the handle for RESOLVE, the balance in cents for BALANCE,
+ *   and 0 otherwise
+ *
+ * length counts the bytes after the length field. Frames may be
+ * pipelined; responses come back in request order, each one only after
+ * every posting in its frame is durable.
+ */
+final class BinaryProtocol {
+    static final byte RESOLVE = 1;
+    static final byte DEPOSIT = 2;
+    static final byte WITHDRAW = 3;
+    static final byte TRANSFER = 4;
+    static final byte BALANCE = 5;
+    
+    static final byte OK = 0;
+    static final byte REFUSED = 1;
+    static final byte UNKNOWN_ACCOUNT = 2;
+    static final byte BAD_REQUEST = 3;
+    
+    /**
+     * correlationId + opCount
+     */
+    static final int FRAME_HEADER = 6;
+    static final int RESULT_SIZE = 9;
+    
+    private BinaryProtocol() {
+    }
+}
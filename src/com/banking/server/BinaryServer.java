@@ -0,0 +1,68 @@
+package com.banking.server;
+
+import com.banking.service.BankService;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.Semaphore;
+
+/**
+ * BinaryServer - BinaryProtocol front end for BankService
+ * NIO channels with blocking reads on one virtual thread per connection;
+ * frames are handled in pooled direct buffers (see BinaryConnection).
+ * Shares ServerConfig with BankServer: binaryPort, maxInFlight and
+ * frameBufferBytes apply here.
+ */
+public class BinaryServer implements Closeable {
+    private final ServerConfig config;
+    private final BankService service;
+    private final BufferPool pool;
+    private final Semaphore inFlight;
+    private ServerSocketChannel serverChannel;
+    private Acceptor<SocketChannel> acceptor;
+    
+    public BinaryServer(BankService service, ServerConfig config) {
+        this.config = config;
+        this.service = service;
+        this.pool = new BufferPool(config.getFrameBufferBytes(), config.getMaxInFlight() * 2);
+        this.inFlight = new Semaphore(config.getMaxInFlight());
+    }
+    
+    /**
+     * Bind the binary port and start accepting connections
+     */
+    public synchronized void start() throws IOException {
+        if (serverChannel != null) {
+            throw new IllegalStateException("Server already started");
+        }
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        serverChannel.bind(new InetSocketAddress(config.getBinaryPort()), config.getBacklog());
+        acceptor = Acceptor.start("binary", serverChannel, () -> {
+            SocketChannel channel = serverChannel.accept();
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            return channel;
+        }, (channel, onClose) -> new BinaryConnection(channel, service, pool, inFlight, onClose));
+    }
+    
+    /**
+     * Port actually bound (useful with port 0)
+     */
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+    
+    /**
+     * Stop accepting and close every open connection
+     * The BankService itself stays open
+     */
+    @Override
+    public synchronized void close() {
+        if (acceptor != null) {
+            acceptor.close();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.banking.server;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * BufferPool - Reusable direct ByteBuffers of one size
+ * Direct buffers live outside the heap, so socket reads and writes use
+ * them without an extra copy; pooling avoids their costly allocation.
+ * At most maxPooled idle buffers are kept.
+ */
+class BufferPool {
+    private final int bufferSize;
+    private final int maxPooled;
+    private final ConcurrentLinkedQueue<ByteBuffer> idle;
+    
+    BufferPool(int bufferSize, int maxPooled) {
+        this.bufferSize = bufferSize;
+        this.maxPooled = maxPooled;
+        this.idle = new ConcurrentLinkedQueue<>();
+    }
+    
+    ByteBuffer acquire() {
+        ByteBuffer buffer = idle.poll();
+        return buffer != null ? buffer.clear() : ByteBuffer.allocateDirect(bufferSize);
+    }
+    
+    void release(ByteBuffer buffer) {
+        if (idle.size() < maxPooled) {
+            idle.offer(buffer);
+        }
+    }
+    
+    int getBufferSize() {
+        return bufferSize;
+    }
+}
@@ -0,0 +1,116 @@
+package com.banking.server;
+
+import com.banking.model.ChangeEvent;
+import com.banking.service.BankService;
+import com.banking.service.ChangeFeed;
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ChangeFeedServer - Serves the change feed on a loopback socket
+ * A client connects, sends the offset to start from as one line (0 for
+ * the whole history, or the offset after the last event it processed)
+ * and then receives one JSON line per event as they are posted (see
+ * Json.change). Each connection has its own ChangeFeed cursor on a
+ * virtual thread; writes block while the client is slow, so TCP flow
+ * control is the backpressure and the cursor just stops reading ahead.
+ * A connection that stays idle for a second gets an empty line, so a
+ * client that went away is noticed by the failed write and its cursor
+ * closed; clients skip empty lines. Anything the client sends after the
+ * offset is ignored, and it may shut down its sending side.
+ */
+public class ChangeFeedServer implements Closeable {
+    private static final long IDLE_POLL_MILLIS = 1000;
+    
+    private final ServerConfig config;
+    private final BankService service;
+    private ServerSocket serverSocket;
+    private Acceptor<Socket> acceptor;
+    
+    public ChangeFeedServer(BankService service, ServerConfig config) {
+        this.config = config;
+        this.service = service;
+    }
+    
+    /**
+     * Bind the feed port on the loopback interface and start accepting
+     */
+    public synchronized void start() throws IOException {
+        if (serverSocket != null) {
+            throw new IllegalStateException("Server already started");
+        }
+        serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), config.getFeedPort()),
+                config.getBacklog());
+        acceptor = Acceptor.start("feed", serverSocket, serverSocket::accept,
+                (socket, onClose) -> () -> serve(socket, onClose));
+    }
+    
+    /**
+     * Port actually bound (useful with port 0)
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+    
+    /**
+     * Stop accepting and close every open connection
+     * The BankService itself stays open
+     */
+    @Override
+    public synchronized void close() {
+        if (acceptor != null) {
+            acceptor.close();
+        }
+    }
+    
+    private void serve(Socket socket, Runnable onClose) {
+        try (Socket connection = socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(connection.getInputStream(),
+                     StandardCharsets.US_ASCII));
+             Writer out = new BufferedWriter(new OutputStreamWriter(connection.getOutputStream(),
+                     StandardCharsets.UTF_8))) {
+            long offset;
+            try {
+                String line = in.readLine();
+                offset = line == null ? -1 : Long.parseLong(line.trim());
+            } catch (NumberFormatException e) {
+                offset = -1;
+            }
+            if (offset < 0 || offset > service.getChangeFeedEnd()) {
+                out.write("{\"error\":" + Json.string("Start offset must be between 0 and "
+                        + service.getChangeFeedEnd()) + "}\n");
+                return;
+            }
+            
+            try (ChangeFeed feed = service.openChangeFeed(offset, config.getFeedBufferSize())) {
+                while (!connection.isClosed()) {
+                    ChangeEvent event = feed.poll(0, TimeUnit.MILLISECONDS);
+                    if (event == null) {
+                        // Caught up: send what is written, then wait for postings
+                        out.flush();
+                        event = feed.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    }
+                    if (event != null) {
+                        out.write(Json.change(event));
+                    }
+                    // Alone, the newline is the idle heartbeat: writing is the
+                    // only way to learn that the client is gone
+                    out.write('\n');
+                }
+            }
+        } catch (IOException e) {
+            // client went away
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            onClose.run();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.banking.server;
+
+import java.io.*;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * HttpConnection - Serves one client connection on its own virtual thread
+ * Requests are read and answered in order, so pipelined requests need no
+ * bookkeeping; responses are buffered and flushed only once no further
+ * request is already waiting in the input, so a pipelined burst goes back
+ * in as few writes as possible.
+ */
+class HttpConnection implements Runnable {
+    private final Socket socket;
+    private final BankApi api;
+    private final Semaphore inFlight;
+    private final ServerConfig config;
+    private final Runnable onClose;
+    
+    HttpConnection(Socket socket, BankApi api, Semaphore inFlight, ServerConfig config, Runnable onClose) {
+        this.socket = socket;
+        this.api = api;
+        this.inFlight = inFlight;
+        this.config = config;
+        this.onClose = onClose;
+    }
+    
+    @Override
+    public void run() {
+        try (Socket client = socket;
+             InputStream in = new BufferedInputStream(client.getInputStream(), 16 * 1024);
+             OutputStream out = new BufferedOutputStream(client.getOutputStream(), 16 * 1024)) {
+            client.setSoTimeout(config.getKeepAliveTimeoutMillis());
+            boolean keepAlive = true;
+            while (keepAlive) {
+                HttpRequest request;
+                try {
+                    request = HttpRequest.read(in, config.getMaxRequestBytes());
+                } catch (HttpException e) {
+                    // The stream position is unknown after a bad request
+                    HttpResponse.error(e.getStatus(), e.getMessage()).writeTo(out, false);
+                    out.flush();
+                    return;
+                }
+                if (request == null) {
+                    return;
+                }
+                keepAlive = request.isKeepAlive();
+                dispatch(request).writeTo(out, keepAlive);
+                if (!keepAlive || in.available() == 0) {
+                    out.flush();
+                }
+            }
+        } catch (SocketTimeoutException | EOFException e) {
+            // Idle keep-alive connection or client gone mid-request
+        } catch (IOException e) {
+            if (!socket.isClosed()) {
+                System.out.println("Warning: Connection failed - " + e.getMessage());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            onClose.run();
+        }
+    }
+    
+    /**
+     * Run one request inside the in-flight limit
+     */
+    private HttpResponse dispatch(HttpRequest request) throws InterruptedException {
+        inFlight.acquire();
+        try {
+            return api.handle(request);
+        } catch (HttpException e) {
+            return HttpResponse.error(e.getStatus(), e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return HttpResponse.error(400, e.getMessage());
+        } catch (RuntimeException e) {
+            System.out.println("Warning: Request failed - " + e);
+            return HttpResponse.error(500, "Internal error");
+        } finally {
+            inFlight.release();
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.banking.server;
+
+/**
+ * HttpException - A request that is answered with an error status
+ */
+class HttpException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+    
+    private final int status;
+    
+    HttpException(int status, String message) {
+        super(message);
+        this.status = status;
+    }
+    
+    int getStatus() {
+        return status;
+    }
+}
@@ -0,0 +1,194 @@
+package com.banking.server;
+
+import java.io.*;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * HttpRequest - One parsed HTTP/1.x request
+ * Parameters come from the query string and from a form-encoded body
+ */
+class HttpRequest {
+    private final String method;
+    private final String path;
+    private final Map<String, List<String>> parameters;
+    private final boolean keepAlive;
+    
+    private HttpRequest(String method, String path, Map<String, List<String>> parameters, boolean keepAlive) {
+        this.method = method;
+        this.path = path;
+        this.parameters = parameters;
+        this.keepAlive = keepAlive;
+    }
+    
+    /**
+     * Read the next request from a connection
+     * Returns null if the client closed the connection between requests
+     */
+    static HttpRequest read(InputStream in, int maxBytes) throws IOException {
+        int[] budget = { maxBytes };
+        String requestLine = readLine(in, budget);
+        while (requestLine != null && requestLine.isEmpty()) {
+            // Tolerate stray CRLF between pipelined requests
+            requestLine = readLine(in, budget);
+        }
+        if (requestLine == null) {
+            return null;
+        }
+        String[] parts = requestLine.split(" ");
+        if (parts.length != 3 || !parts[2].startsWith("HTTP/1.")) {
+            throw new HttpException(400, "Malformed request line");
+        }
+        
+        Map<String, String> headers = new HashMap<>();
+        while (true) {
+            String line = readLine(in, budget);
+            if (line == null) {
+                throw new EOFException("Connection closed inside a request");
+            }
+            if (line.isEmpty()) {
+                break;
+            }
+            int colon = line.indexOf(':');
+            if (colon <= 0) {
+                throw new HttpException(400, "Malformed header");
+            }
+            headers.put(line.substring(0, colon).trim().toLowerCase(Locale.ROOT), line.substring(colon + 1).trim());
+        }
+        if (headers.containsKey("transfer-encoding")) {
+            throw new HttpException(501, "Chunked request bodies are not supported");
+        }
+        
+        String target = parts[1];
+        int question = target.indexOf('?');
+        String path = question < 0 ? target : target.substring(0, question);
+        Map<String, List<String>> parameters = new HashMap<>();
+        if (question >= 0) {
+            parseForm(target.substring(question + 1), parameters);
+        }
+        
+        int length = parseLength(headers.get("content-length"), maxBytes);
+        if (length > 0) {
+            byte[] body = in.readNBytes(length);
+            if (body.length < length) {
+                throw new EOFException("Connection closed inside a request body");
+            }
+            parseForm(new String(body, StandardCharsets.UTF_8), parameters);
+        }
+        
+        String connection = headers.getOrDefault("connection", "").toLowerCase(Locale.ROOT);
+        boolean keepAlive = parts[2].equals("HTTP/1.0") ? connection.equals("keep-alive") : !connection.equals("close");
+        return new HttpRequest(parts[0], path, parameters, keepAlive);
+    }
+    
+    String getMethod() {
+        return method;
+    }
+    
+    String getPath() {
+        return path;
+    }
+    
+    boolean isKeepAlive() {
+        return keepAlive;
+    }
+    
+    /**
+     * First value of a parameter, or null
+     */
+    String parameter(String name) {
+        List<String> values = parameters.get(name);
+        return values == null ? null : values.get(0);
+    }
+    
+    /**
+     * Every value of a parameter, comma-separated values split apart
+     */
+    List<String> parameters(String name) {
+        List<String> result = new ArrayList<>();
+        for (String value : parameters.getOrDefault(name, Collections.emptyList())) {
+            for (String item : value.split(",")) {
+                if (!item.isEmpty()) {
+                    result.add(item);
+                }
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * A parameter that must be present
+     */
+    String required(String name) {
+        String value = parameter(name);
+        if (value == null || value.isEmpty()) {
+            throw new HttpException(400, "Missing parameter " + name);
+        }
+        return value;
+    }
+    
+    private static int parseLength(String value, int maxBytes) {
+        if (value == null) {
+            return 0;
+        }
+        int length;
+        try {
+            length = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new HttpException(400, "Bad Content-Length");
+        }
+        if (length < 0) {
+            throw new HttpException(400, "Bad Content-Length");
+        }
+        if (length > maxBytes) {
+            throw new HttpException(413, "Request body too large");
+        }
+        return length;
+    }
+    
+    private static void parseForm(String form, Map<String, List<String>> parameters) {
+        for (String pair : form.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+            int equals = pair.indexOf('=');
+            String name = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            try {
+                parameters.computeIfAbsent(URLDecoder.decode(name, StandardCharsets.UTF_8), k -> new ArrayList<>())
+                        .add(URLDecoder.decode(value, StandardCharsets.UTF_8));
+            } catch (IllegalArgumentException e) {
+                throw new HttpException(400, "Bad parameter encoding");
+            }
+        }
+    }
+    
+    /**
+     * One CRLF- (or LF-) terminated ISO-8859-1 line, charged against the
+     * request's byte budget; null at end of stream before any byte
+     */
+    private static String readLine(InputStream in, int[] budget) throws IOException {
+        StringBuilder line = new StringBuilder(64);
+        while (true) {
+            int b = in.read();
+            if (b < 0) {
+                if (line.length() == 0) {
+                    return null;
+                }
+                throw new EOFException("Connection closed inside a request");
+            }
+            if (--budget[0] < 0) {
+                throw new HttpException(431, "Request head too large");
+            }
+            if (b == '\n') {
+                int end = line.length();
+                if (end > 0 && line.charAt(end - 1) == '\r') {
+                    line.setLength(end - 1);
+                }
+                return line.toString();
+            }
+            line.append((char) b);
+        }
+    }
+}
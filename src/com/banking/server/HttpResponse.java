@@ -0,0 +1,65 @@
+package com.banking.server;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * HttpResponse - Status and JSON body of one response
+ */
+class HttpResponse {
+    private final int status;
+    private final String body;
+    
+    HttpResponse(int status, String body) {
+        this.status = status;
+        this.body = body;
+    }
+    
+    static HttpResponse error(int status, String message) {
+        return new HttpResponse(status, "{\"error\":" + Json.string(message) + "}");
+    }
+    
+    int getStatus() {
+        return status;
+    }
+    
+    /**
+     * Write status line, headers and body; the caller decides when to flush
+     */
+    void writeTo(OutputStream out, boolean keepAlive) throws IOException {
+        byte[] content = body.getBytes(StandardCharsets.UTF_8);
+        StringBuilder head = new StringBuilder(128);
+        head.append("HTTP/1.1 ").append(status).append(' ').append(reason(status)).append("\r\n");
+        head.append("Content-Type: application/json; charset=utf-8\r\n");
+        head.append("Content-Length: ").append(content.length).append("\r\n");
+        head.append("Connection: ").append(keepAlive ? "keep-alive" : "close").append("\r\n\r\n");
+        out.write(head.toString().getBytes(StandardCharsets.ISO_8859_1));
+        out.write(content);
+    }
+    
+    private static String reason(int status) {
+        switch (status) {
+            case 200:
+                return "OK";
+            case 201:
+                return "Created";
+            case 400:
+                return "Bad Request";
+            case 404:
+                return "Not Found";
+            case 405:
+                return "Method Not Allowed";
+            case 409:
+                return "Conflict";
+            case 413:
+                return "Payload Too Large";
+            case 431:
+                return "Request Header Fields Too Large";
+            case 501:
+                return "Not Implemented";
+            default:
+                return status >= 500 ? "Server Error" : "Error";
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.banking.server;
+
+import com.banking.model.*;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Json - Minimal JSON rendering of the banking model for BankServer
+ */
+final class Json {
+    private Json() {
+    }
+    
+    static String account(Account account) {
+        StringBuilder json = new StringBuilder(128);
+        appendAccount(json, account);
+        return json.toString();
+    }
+    
+    static String accounts(Collection<Account> accounts) {
+        StringBuilder json = new StringBuilder(64 + accounts.size() * 96);
+        json.append("{\"accounts\":[");
+        boolean first = true;
+        for (Account account : accounts) {
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            appendAccount(json, account);
+        }
+        return json.append("]}").toString();
+    }
+    
+    static String page(HistoryPage page) {
+        StringBuilder json = new StringBuilder(64 + page.getTransactions().size() * 160);
+        json.append("{\"transactions\":[");
+        boolean first = true;
+        for (Transaction transaction : page.getTransactions()) {
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            json.append('{');
+            appendTransaction(json, transaction);
+            json.append('}');
+        }
+        json.append("],\"continuationToken\":")
+            .append(page.getContinuationToken() == null ? "null" : string(page.getContinuationToken()));
+        return json.append('}').toString();
+    }
+    
+    static String totals(AccountTotals totals) {
+        StringBuilder json = new StringBuilder(160);
+        json.append("{\"accounts\":").append(totals.getAccountCount())
+            .append(",\"accountsByType\":{");
+        boolean first = true;
+        for (Map.Entry<String, Long> entry : totals.getAccountsByType().entrySet()) {
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            json.append(string(entry.getKey())).append(':').append(entry.getValue());
+        }
+        return json.append("},\"totalDeposits\":").append(amount(totals.getTotalDeposits()))
+            .append(",\"overdraftExposure\":").append(amount(totals.getOverdraftExposure()))
+            .append(",\"negativeBalanceAccounts\":").append(totals.getNegativeBalanceAccounts())
+            .append('}').toString();
+    }
+    
+    /**
+     * One change feed event, e.g. {"offset":12,"event":"transaction","accountNumber":...}
+     */
+    static String change(ChangeEvent event) {
+        StringBuilder json = new StringBuilder(192);
+        json.append("{\"offset\":").append(event.getOffset());
+        if (event.isAccountOpened()) {
+            json.append(",\"event\":\"accountOpened\",\"account\":");
+            appendAccount(json, event.getAccount());
+        } else {
+            json.append(",\"event\":\"transaction\",\"accountNumber\":")
+                .append(string(event.getAccountNumber())).append(',');
+            appendTransaction(json, event.getTransaction());
+        }
+        return json.append('}').toString();
+    }
+    
+    static String result(boolean ok) {
+        return ok ? "{\"ok\":true}" : "{\"ok\":false}";
+    }
+    
+    static String string(String value) {
+        StringBuilder json = new StringBuilder(value.length() + 2);
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        return json.append('"').toString();
+    }
+    
+    private static void appendAccount(StringBuilder json, Account account) {
+        json.append("{\"accountNumber\":").append(string(account.getAccountNumber()))
+            .append(",\"holder\":").append(string(account.getAccountHolderName()))
+            .append(",\"type\":").append(string(account.getAccountType()))
+            .append(",\"balance\":").append(amount(account.getBalance()))
+            .append('}');
+    }
+    
+    private static void appendTransaction(StringBuilder json, Transaction transaction) {
+        json.append("\"id\":").append(string(transaction.getTransactionId()))
+            .append(",\"type\":").append(string(transaction.getTransactionType()))
+            .append(",\"amount\":").append(amount(transaction.getAmount()))
+            .append(",\"balanceAfter\":").append(amount(transaction.getBalanceAfter()))
+            .append(",\"description\":").append(string(transaction.getDescription()))
+            .append(",\"timestamp\":").append(string(transaction.getTimestamp().toString()));
+    }
+    
+    /**
+     * Amount with exactly two decimals, without going through String.format
+     */
+    private static String amount(double value) {
+        long cents = Money.toCents(value);
+        long whole = Math.abs(cents / 100);
+        long fraction = Math.abs(cents % 100);
+        return (cents < 0 ? "-" : "") + whole + (fraction < 10 ? ".0" : ".") + fraction;
+    }
+}
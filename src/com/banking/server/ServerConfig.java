@@ -0,0 +1,166 @@
+package com.banking.server;
+
+/**
+ * ServerConfig - Settings for the embedded BankServer
+ * Setters return this so options can be chained
+ */
+public class ServerConfig {
+    private int port;
+    private int backlog;
+    private int maxInFlight;
+    private int keepAliveTimeoutMillis;
+    private int maxRequestBytes;
+    private int binaryPort;
+    private int frameBufferBytes;
+    private int feedPort;
+    private int feedBufferSize;
+    
+    public ServerConfig() {
+        this.port = 8080;
+        this.backlog = 1024;
+        this.maxInFlight = 256;
+        this.keepAliveTimeoutMillis = 30_000;
+        this.maxRequestBytes = 64 * 1024;
+        this.binaryPort = 8081;
+        this.frameBufferBytes = 64 * 1024;
+        this.feedPort = 8082;
+        this.feedBufferSize = 1024;
+    }
+    
+    /**
+     * Port to listen on; 0 picks a free one (see BankServer.getPort)
+     */
+    public int getPort() {
+        return port;
+    }
+    
+    public ServerConfig setPort(int port) {
+        if (port < 0 || port > 65535) {
+            throw new IllegalArgumentException("Port must be between 0 and 65535");
+        }
+        this.port = port;
+        return this;
+    }
+    
+    /**
+     * Connections the OS may queue before they are accepted
+     */
+    public int getBacklog() {
+        return backlog;
+    }
+    
+    public ServerConfig setBacklog(int backlog) {
+        if (backlog < 1) {
+            throw new IllegalArgumentException("Backlog must be at least 1");
+        }
+        this.backlog = backlog;
+        return this;
+    }
+    
+    /**
+     * Most requests executing against BankService at once, over all
+     * connections. Further requests wait before their connection is read
+     * again, so TCP flow control pushes back on the clients
+     */
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+    
+    public ServerConfig setMaxInFlight(int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("In-flight limit must be at least 1");
+        }
+        this.maxInFlight = maxInFlight;
+        return this;
+    }
+    
+    /**
+     * How long an idle keep-alive connection is kept open
+     */
+    public int getKeepAliveTimeoutMillis() {
+        return keepAliveTimeoutMillis;
+    }
+    
+    public ServerConfig setKeepAliveTimeoutMillis(int keepAliveTimeoutMillis) {
+        if (keepAliveTimeoutMillis < 1) {
+            throw new IllegalArgumentException("Keep-alive timeout must be at least 1 ms");
+        }
+        this.keepAliveTimeoutMillis = keepAliveTimeoutMillis;
+        return this;
+    }
+    
+    /**
+     * Largest request head or body accepted
+     */
+    public int getMaxRequestBytes() {
+        return maxRequestBytes;
+    }
+    
+    public ServerConfig setMaxRequestBytes(int maxRequestBytes) {
+        if (maxRequestBytes < 256) {
+            throw new IllegalArgumentException("Request limit must be at least 256 bytes");
+        }
+        this.maxRequestBytes = maxRequestBytes;
+        return this;
+    }
+    
+    /**
+     * Port of the BinaryServer; 0 picks a free one
+     */
+    public int getBinaryPort() {
+        return binaryPort;
+    }
+    
+    public ServerConfig setBinaryPort(int binaryPort) {
+        if (binaryPort < 0 || binaryPort > 65535) {
+            throw new IllegalArgumentException("Port must be between 0 and 65535");
+        }
+        this.binaryPort = binaryPort;
+        return this;
+    }
+    
+    /**
+     * Size of each pooled direct buffer; also the largest binary frame
+     */
+    public int getFrameBufferBytes() {
+        return frameBufferBytes;
+    }
+    
+    public ServerConfig setFrameBufferBytes(int frameBufferBytes) {
+        if (frameBufferBytes < 256) {
+            throw new IllegalArgumentException("Frame buffer must be at least 256 bytes");
+        }
+        this.frameBufferBytes = frameBufferBytes;
+        return this;
+    }
+    
+    /**
+     * Port of the ChangeFeedServer (loopback only); 0 picks a free one
+     */
+    public int getFeedPort() {
+        return feedPort;
+    }
+    
+    public ServerConfig setFeedPort(int feedPort) {
+        if (feedPort < 0 || feedPort > 65535) {
+            throw new IllegalArgumentException("Port must be between 0 and 65535");
+        }
+        this.feedPort = feedPort;
+        return this;
+    }
+    
+    /**
+     * Change events each feed connection reads ahead of its socket
+     */
+    public int getFeedBufferSize() {
+        return feedBufferSize;
+    }
+    
+    public ServerConfig setFeedBufferSize(int feedBufferSize) {
+        if (feedBufferSize < 1) {
+            throw new IllegalArgumentException("Feed buffer must hold at least 1 event");
+        }
+        this.feedBufferSize = feedBufferSize;
+        return this;
+    }
+}
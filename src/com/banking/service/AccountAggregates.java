@@ -0,0 +1,57 @@
+package com.banking.service;
+
+import com.banking.model.Account;
+import com.banking.model.AccountTotals;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * AccountAggregates - Running totals over all accounts
+ * Every balance change is reported with the balance before and after it,
+ * so each total moves by a constant amount per posting instead of being
+ * recomputed by a scan. The counters are LongAdders: concurrent postings
+ * add to separate cells and only a read sums them.
+ */
+class AccountAggregates {
+    private final LongAdder depositsCents = new LongAdder();
+    private final LongAdder overdraftCents = new LongAdder();
+    private final LongAdder negativeAccounts = new LongAdder();
+    private final ConcurrentHashMap<String, LongAdder> accountsByType = new ConcurrentHashMap<>();
+    
+    void accountAdded(Account account) {
+        accountsByType.computeIfAbsent(account.getAccountType(), type -> new LongAdder()).increment();
+        balanceChanged(0, account.getBalanceCents());
+    }
+    
+    /**
+     * Record one atomic balance change of an account
+     */
+    void balanceChanged(long beforeCents, long afterCents) {
+        long deposits = Math.max(afterCents, 0) - Math.max(beforeCents, 0);
+        if (deposits != 0) {
+            depositsCents.add(deposits);
+        }
+        long overdraft = Math.max(-afterCents, 0) - Math.max(-beforeCents, 0);
+        if (overdraft != 0) {
+            overdraftCents.add(overdraft);
+        }
+        if ((beforeCents < 0) != (afterCents < 0)) {
+            negativeAccounts.add(afterCents < 0 ? 1 : -1);
+        }
+    }
+    
+    /**
+     * Sum the counters
+     * Each total is exact once postings in flight have reported; while
+     * postings run, totals may be a few postings apart from each other
+     */
+    AccountTotals snapshot() {
+        Map<String, Long> byType = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> entry : accountsByType.entrySet()) {
+            byType.put(entry.getKey(), entry.getValue().sum());
+        }
+        return new AccountTotals(byType, depositsCents.sum(), overdraftCents.sum(), negativeAccounts.sum());
+    }
+}
@@ -0,0 +1,166 @@
+package com.banking.service;
+
+import com.banking.model.Account;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * AccountDirectory - Interns account numbers to dense int handles
+ * Every account gets the next handle when it is added, and accounts live
+ * in an array indexed by handle, so code holding a handle reaches the
+ * account without hashing. The number-to-handle lookup is an
+ * open-addressing table of parallel arrays (key, cached hash, handle)
+ * with linear probing: no entry objects and no boxed Integers.
+ *
+ * Reads take no lock. Adds are serialized and change the live table in
+ * place: the account is stored and the slot's hash and handle written
+ * before its key, which is written last with release semantics, so a
+ * reader that sees the key also sees its handle and account; slots are
+ * only ever filled, never cleared or moved. When the table would grow past
+ * half full, a larger one is filled privately and then published through
+ * the volatile table field, so a reader sees either the old table or the
+ * complete new one.
+ */
+class AccountDirectory {
+    private static final VarHandle KEYS = MethodHandles.arrayElementVarHandle(String[].class);
+    private static final int INITIAL_CAPACITY = 64;
+    
+    /**
+     * Returned by handleOf for an unknown account number
+     */
+    static final int NO_HANDLE = -1;
+    
+    private static final class Table {
+        final String[] keys;
+        final int[] hashes;
+        final int[] handles;
+        final int mask;
+        
+        Table(int capacity) {
+            this.keys = new String[capacity];
+            this.hashes = new int[capacity];
+            this.handles = new int[capacity];
+            this.mask = capacity - 1;
+        }
+    }
+    
+    private volatile Table table;
+    private volatile Account[] accounts;
+    private volatile int size;
+    
+    AccountDirectory() {
+        this.table = new Table(INITIAL_CAPACITY * 2);
+        this.accounts = new Account[INITIAL_CAPACITY];
+    }
+    
+    /**
+     * Handle of an account number, or NO_HANDLE
+     */
+    int handleOf(String accountNumber) {
+        if (accountNumber == null) {
+            return NO_HANDLE;
+        }
+        Table current = table;
+        int hash = spread(accountNumber.hashCode());
+        for (int slot = hash & current.mask; ; slot = (slot + 1) & current.mask) {
+            String key = (String) KEYS.getAcquire(current.keys, slot);
+            if (key == null) {
+                return NO_HANDLE;
+            }
+            if (key == accountNumber || (current.hashes[slot] == hash && key.equals(accountNumber))) {
+                return current.handles[slot];
+            }
+        }
+    }
+    
+    /**
+     * Account behind a handle, or null for a handle never issued
+     */
+    Account get(int handle) {
+        Account[] current = accounts;
+        return handle >= 0 && handle < current.length ? current[handle] : null;
+    }
+    
+    Account get(String accountNumber) {
+        int handle = handleOf(accountNumber);
+        return handle == NO_HANDLE ? null : get(handle);
+    }
+    
+    /**
+     * Add an account under the next handle
+     * Returns the handle, or NO_HANDLE if the number is already taken
+     */
+    synchronized int add(Account account) {
+        String accountNumber = account.getAccountNumber();
+        if (handleOf(accountNumber) != NO_HANDLE) {
+            return NO_HANDLE;
+        }
+        int handle = size;
+        Account[] current = accounts;
+        if (handle == current.length) {
+            current = Arrays.copyOf(current, handle * 2);
+        }
+        current[handle] = account;
+        accounts = current;
+        
+        Table target = table;
+        if ((handle + 1) * 2 > target.keys.length) {
+            target = rehash(target, target.keys.length * 2);
+        }
+        insert(target, accountNumber, spread(accountNumber.hashCode()), handle);
+        table = target;
+        size = handle + 1;
+        return handle;
+    }
+    
+    int size() {
+        return size;
+    }
+    
+    /**
+     * Live read-only view of all accounts, in handle order
+     */
+    List<Account> values() {
+        return new AbstractList<Account>() {
+            @Override
+            public Account get(int index) {
+                if (index < 0 || index >= size) {
+                    throw new IndexOutOfBoundsException("Index: " + index);
+                }
+                return accounts[index];
+            }
+            
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+    
+    private static Table rehash(Table old, int capacity) {
+        Table resized = new Table(capacity);
+        for (int slot = 0; slot < old.keys.length; slot++) {
+            if (old.keys[slot] != null) {
+                insert(resized, old.keys[slot], old.hashes[slot], old.handles[slot]);
+            }
+        }
+        return resized;
+    }
+    
+    private static void insert(Table target, String key, int hash, int handle) {
+        int slot = hash & target.mask;
+        while (target.keys[slot] != null) {
+            slot = (slot + 1) & target.mask;
+        }
+        target.hashes[slot] = hash;
+        target.handles[slot] = handle;
+        KEYS.setRelease(target.keys, slot, key);
+    }
+    
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,80 @@
+package com.banking.service;
+
+import java.util.BitSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * AccountLocks - Striped locks for operations spanning two accounts
+ * Single-account balance changes are lock-free; a transfer holds the
+ * stripes of both accounts so its two legs are applied as one step with
+ * respect to other transfers. Accounts are striped by their dense handle,
+ * so consecutive accounts never share a stripe, and stripes are taken in
+ * stripe order, which rules out deadlock between concurrent transfers in
+ * opposite directions.
+ */
+class AccountLocks {
+    private final ReentrantLock[] stripes;
+    private final int mask;
+    
+    /**
+     * @param stripes number of locks, rounded up to a power of two
+     */
+    AccountLocks(int stripes) {
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        this.stripes = new ReentrantLock[size];
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+    }
+    
+    /**
+     * Lock the stripe of one account
+     */
+    ReentrantLock lock(int handle) {
+        ReentrantLock lock = stripes[handle & mask];
+        lock.lock();
+        return lock;
+    }
+    
+    /**
+     * Lock the stripes of two accounts, lower stripe first
+     * Returns the locks to release (one when both share a stripe)
+     */
+    ReentrantLock[] lock(int first, int second) {
+        int a = first & mask;
+        int b = second & mask;
+        if (a == b) {
+            return new ReentrantLock[] { lock(first) };
+        }
+        ReentrantLock low = stripes[Math.min(a, b)];
+        ReentrantLock high = stripes[Math.max(a, b)];
+        low.lock();
+        high.lock();
+        return new ReentrantLock[] { high, low };
+    }
+    
+    /**
+     * Lock the stripes of any number of accounts, in stripe order
+     * Returns the locks to release, each stripe once
+     */
+    ReentrantLock[] lockAll(int[] handles) {
+        BitSet needed = new BitSet(stripes.length);
+        for (int handle : handles) {
+            needed.set(handle & mask);
+        }
+        ReentrantLock[] held = new ReentrantLock[needed.cardinality()];
+        int count = 0;
+        for (int stripe = needed.nextSetBit(0); stripe >= 0; stripe = needed.nextSetBit(stripe + 1)) {
+            stripes[stripe].lock();
+            held[count++] = stripes[stripe];
+        }
+        return held;
+    }
+    
+    static void unlock(ReentrantLock[] locks) {
+        for (ReentrantLock lock : locks) {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.banking.service;
+
+import com.banking.model.*;
+import java.io.Closeable;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * AsyncBankService - Non-blocking facade over BankService
+ * Every operation runs on an executor (a virtual thread per task by
+ * default) and returns at once, so UI threads and request handlers never
+ * wait on disk. Mutations return an OperationFuture: it completes when
+ * the change is applied in memory, and its durable() future when the
+ * journal has it on disk. Under FsyncPolicy.PER_OPERATION the journal is
+ * forced inline, so the two complete together.
+ */
+public class AsyncBankService implements Closeable {
+    private final BankService service;
+    private final Executor executor;
+    private final boolean ownsExecutor;
+    
+    /**
+     * Run operations on virtual threads, one per operation
+     */
+    public AsyncBankService(BankService service) {
+        this(service, Executors.newVirtualThreadPerTaskExecutor(), true);
+    }
+    
+    /**
+     * Run operations on the given executor; it is not shut down by close()
+     */
+    public AsyncBankService(BankService service, Executor executor) {
+        this(service, executor, false);
+    }
+    
+    private AsyncBankService(BankService service, Executor executor, boolean ownsExecutor) {
+        this.service = service;
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+    }
+    
+    /**
+     * Create a new bank account
+     * Fails with IllegalArgumentException if the number is taken, or
+     * IllegalStateException if the journal refused to save it
+     */
+    public OperationFuture<Account> createAccount(String accountNumber, String accountHolderName,
+                                                  String accountType) {
+        OperationFuture<Account> result = new OperationFuture<>();
+        run(result, () -> {
+            Account account = BankService.newAccount(accountNumber, accountHolderName, accountType);
+            CompletableFuture<Long> journaled = service.applyCreateAccount(account);
+            result.applied(service.getAccount(accountNumber), journaled);
+        });
+        return result;
+    }
+    
+    public OperationFuture<Boolean> deposit(String accountNumber, double amount) {
+        return post(() -> service.applyDeposit(accountNumber, amount));
+    }
+    
+    public OperationFuture<Boolean> withdraw(String accountNumber, double amount) {
+        return post(() -> service.applyWithdraw(accountNumber, amount));
+    }
+    
+    public OperationFuture<Boolean> transfer(String fromAccountNumber, String toAccountNumber, double amount) {
+        return post(() -> service.applyTransfer(fromAccountNumber, toAccountNumber, amount));
+    }
+    
+    /**
+     * Postings by account handle (see BankService.getAccountHandle)
+     */
+    public OperationFuture<Boolean> deposit(int accountHandle, double amount) {
+        return post(() -> service.applyDeposit(accountHandle, amount));
+    }
+    
+    public OperationFuture<Boolean> withdraw(int accountHandle, double amount) {
+        return post(() -> service.applyWithdraw(accountHandle, amount));
+    }
+    
+    public OperationFuture<Boolean> transfer(int fromAccountHandle, int toAccountHandle, double amount) {
+        return post(() -> service.applyTransfer(fromAccountHandle, toAccountHandle, amount));
+    }
+    
+    /**
+     * Bulk posting (see BankService.postBatch); one result per instruction
+     */
+    public OperationFuture<List<TransferResult>> postBatch(List<TransferInstruction> instructions,
+                                                           BatchMode mode) {
+        OperationFuture<List<TransferResult>> result = new OperationFuture<>();
+        run(result, () -> {
+            TransferResult[] results = new TransferResult[instructions.size()];
+            CompletableFuture<Long> journaled = service.applyBatch(instructions, mode, results);
+            if (journaled == null) {
+                result.settled(Arrays.asList(results));
+            } else {
+                result.applied(Arrays.asList(results), journaled);
+            }
+        });
+        return result;
+    }
+    
+    public CompletableFuture<Account> getAccount(String accountNumber) {
+        return CompletableFuture.supplyAsync(() -> service.getAccount(accountNumber), executor);
+    }
+    
+    public CompletableFuture<List<Transaction>> getTransactionHistory(String accountNumber) {
+        return CompletableFuture.supplyAsync(() -> service.getTransactionHistory(accountNumber), executor);
+    }
+    
+    public CompletableFuture<HistoryPage> getTransactionHistory(HistoryQuery query) {
+        return CompletableFuture.supplyAsync(() -> service.getTransactionHistory(query), executor);
+    }
+    
+    public CompletableFuture<Collection<Account>> getAllAccounts() {
+        return CompletableFuture.supplyAsync(() -> service.getAllAccounts(), executor);
+    }
+    
+    /**
+     * The wrapped synchronous service
+     */
+    public BankService getService() {
+        return service;
+    }
+    
+    /**
+     * Shut down the default executor after queued operations finish
+     * The BankService itself stays open
+     */
+    @Override
+    public void close() {
+        if (ownsExecutor) {
+            ((ExecutorService) executor).close();
+        }
+    }
+    
+    /**
+     * Run a posting; a null durability future means it was refused
+     */
+    private OperationFuture<Boolean> post(Supplier<CompletableFuture<Long>> posting) {
+        OperationFuture<Boolean> result = new OperationFuture<>();
+        run(result, () -> {
+            CompletableFuture<Long> journaled = posting.get();
+            if (journaled == null) {
+                result.settled(false);
+            } else {
+                result.applied(true, journaled);
+            }
+        });
+        return result;
+    }
+    
+    private void run(OperationFuture<?> result, Runnable operation) {
+        try {
+            executor.execute(() -> {
+                try {
+                    operation.run();
+                } catch (RuntimeException e) {
+                    result.failed(e);
+                }
+            });
+        } catch (RuntimeException e) {
+            result.failed(e);
+        }
+    }
+}
@@ -1,212 +1,1035 @@
 package com.banking.service;
 
 import com.banking.model.*;
+import com.banking.persistence.AccountSlots;
+import com.banking.persistence.AccrualRun;
+import com.banking.persistence.Checkpointer;
+import com.banking.persistence.CommitMetrics;
+import com.banking.persistence.IdReservation;
+import com.banking.persistence.Journal;
+import com.banking.persistence.LegacyDataMigrator;
+import com.banking.persistence.Snapshot;
+import com.banking.persistence.StorageConfig;
+import com.banking.persistence.TransactionLog;
 import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * BankService - Main service class for banking operations
  * Demonstrates File I/O for data persistence
+ *
+ * Every mutation is appended to a write-ahead journal; a background
+ * Checkpointer periodically folds the journal into the snapshot files.
+ * Startup loads the last snapshot and replays the journal on top.
+ *
+ * Transaction history is kept in a memory-mapped TransactionLog rather
+ * than on the heap, so memory use does not grow with the ledger.
+ *
+ * Account numbers are interned to dense int handles when an account is
+ * created (see AccountDirectory); callers that keep a handle post without
+ * any string hashing, and transactions share the account's own number.
+ * With StorageConfig.setOffHeapAccounts the account state itself moves
+ * into a mapped AccountSlots file and accounts become views over it.
+ *
+ * Safe for concurrent callers: the account directory is read without a
+ * lock and balances are fixed-point cents changed by compare-and-set, so deposits
+ * and withdrawals take no lock. Transfers also hold the striped locks of
+ * both accounts. Callers wait for durability after the in-memory change,
+ * so they share group commits.
  */
-public class BankService {
-    private Map<String, Account> accounts;
-    private List<Transaction> transactions;
-    private int transactionCounter;
+public class BankService implements Closeable {
+    private static final int LOCK_STRIPES = 1024;
+    private static final int STATEMENT_PAGE_SIZE = 4096;
     
-    private static final String ACCOUNTS_FILE = "data/accounts.dat";
-    private static final String TRANSACTIONS_FILE = "data/transactions.dat";
+    private final AccountDirectory accounts;
+    private final AccountSlots slots;
+    private final IdReservation idReservation;
+    private final TransactionIdGenerator idGenerator;
+    private final AccountLocks locks;
+    private final StorageConfig config;
+    private final Journal journal;
+    private final TransactionLog ledger;
+    private final Checkpointer checkpointer;
+    private final AccountAggregates aggregates;
+    private final ChangePublisher changes;
+    private SequencerEngine sequencer;
+    private InterestAccrual accrual;
     
     public BankService() {
-        this.accounts = new HashMap<>();
-        this.transactions = new ArrayList<>();
-        this.transactionCounter = 1;
-        loadData();
+        this(new StorageConfig());
+    }
+    
+    public BankService(StorageConfig config) {
+        this.accounts = new AccountDirectory();
+        this.aggregates = new AccountAggregates();
+        this.locks = new AccountLocks(LOCK_STRIPES);
+        this.config = config;
+        try {
+            Files.createDirectories(dataDirectory());
+            this.journal = new Journal(dataDirectory(), config);
+            journal.start();
+            this.ledger = new TransactionLog(dataDirectory());
+            this.slots = config.isOffHeapAccounts() ? new AccountSlots(dataDirectory()) : null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open journal", e);
+        }
+        long snapshotLsn = loadData();
+        try {
+            // Never below the ledger, so a lost reservation file cannot reuse ids
+            this.idReservation = new IdReservation(dataDirectory(), ledger.getNextTransactionNumber());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read transaction id reservation", e);
+        }
+        this.idGenerator = createIdGenerator();
+        this.changes = new ChangePublisher(ledger);
+        journal.setAppendListener(changes);
+        this.checkpointer = new Checkpointer(dataDirectory(), journal, ledger, config,
+                journal::roll, snapshotLsn);
+        checkpointer.start();
     }
     
     /**
      * Create a new bank account
+     * Throws IllegalStateException if the journal refused to save it
      */
     public Account createAccount(String accountNumber, String accountHolderName, String accountType) {
-        if (accounts.containsKey(accountNumber)) {
-            throw new IllegalArgumentException("Account number already exists");
+        Account account = newAccount(accountNumber, accountHolderName, accountType);
+        awaitDurable(applyCreateAccount(account));
+        return accounts.get(accountNumber);
+    }
+    
+    /**
+     * Deposit money into an account
+     */
+    public boolean deposit(String accountNumber, double amount) {
+        return awaitApplied(applyDeposit(accountNumber, amount));
+    }
+    
+    /**
+     * Withdraw money from an account
+     */
+    public boolean withdraw(String accountNumber, double amount) {
+        return awaitApplied(applyWithdraw(accountNumber, amount));
+    }
+    
+    /**
+     * Transfer money between accounts
+     */
+    public boolean transfer(String fromAccountNumber, String toAccountNumber, double amount) {
+        return awaitApplied(applyTransfer(fromAccountNumber, toAccountNumber, amount));
+    }
+    
+    /**
+     * Deposit money into an account given by handle
+     */
+    public boolean deposit(int accountHandle, double amount) {
+        return awaitApplied(applyDeposit(accountHandle, amount));
+    }
+    
+    /**
+     * Withdraw money from an account given by handle
+     */
+    public boolean withdraw(int accountHandle, double amount) {
+        return awaitApplied(applyWithdraw(accountHandle, amount));
+    }
+    
+    /**
+     * Transfer money between accounts given by handle
+     */
+    public boolean transfer(int fromAccountHandle, int toAccountHandle, double amount) {
+        return awaitApplied(applyTransfer(fromAccountHandle, toAccountHandle, amount));
+    }
+    
+    /**
+     * Post many transfers at once (payroll, settlement runs)
+     * All accounts involved are locked once, in stripe order, and every
+     * applied transfer is journaled in one write. Returns one result per
+     * instruction, in order.
+     */
+    public List<TransferResult> postBatch(List<TransferInstruction> instructions, BatchMode mode) {
+        TransferResult[] results = new TransferResult[instructions.size()];
+        CompletableFuture<Long> durable = applyBatch(instructions, mode, results);
+        if (durable != null) {
+            awaitDurable(durable);
         }
-        
-        Account account;
+        return Arrays.asList(results);
+    }
+    
+    /**
+     * Get account by account number
+     */
+    public Account getAccount(String accountNumber) {
+        return accounts.get(accountNumber);
+    }
+    
+    /**
+     * Get account by handle, or null for a handle never issued
+     */
+    public Account getAccount(int accountHandle) {
+        return accounts.get(accountHandle);
+    }
+    
+    /**
+     * Dense int handle of an account number, or -1 if there is no such account
+     * Handles are assigned in creation order and stay fixed while this
+     * service runs (not across restarts)
+     */
+    public int getAccountHandle(String accountNumber) {
+        return accounts.handleOf(accountNumber);
+    }
+    
+    /**
+     * Get transaction history for an account
+     * Read from the mapped ledger through its per-account index, so the
+     * cost depends on this account's entries only
+     */
+    public List<Transaction> getTransactionHistory(String accountNumber) {
+        return ledger.findByAccount(accountNumber);
+    }
+    
+    /**
+     * Get one page of an account's transaction history
+     * Filters and paging run against the ledger, so only the page itself
+     * is materialized; pass the returned token back for the next page
+     */
+    public HistoryPage getTransactionHistory(HistoryQuery query) {
+        return ledger.findPage(query);
+    }
+    
+    /**
+     * Up to maxCount transactions of an account, oldest first, starting at
+     * a position in its history (0 is the first transaction)
+     */
+    public List<Transaction> getTransactionHistory(String accountNumber, int fromPosition, int maxCount) {
+        return ledger.findByAccount(accountNumber, fromPosition, maxCount);
+    }
+    
+    /**
+     * Number of transactions in an account's history, without reading them
+     */
+    public int getTransactionCount(String accountNumber) {
+        return ledger.countByAccount(accountNumber);
+    }
+    
+    /**
+     * Write an account's statement for a time range to a file, streaming
+     * Pages through the ledger and writes each page before reading the
+     * next, so memory use stays the same however long the history is.
+     * from and to may be null for an open range. Returns the rows written
+     */
+    public long exportStatement(String accountNumber, LocalDateTime from, LocalDateTime to,
+                                StatementFormat format, Path file) {
+        Account account = accounts.get(accountNumber);
+        if (account == null) {
+            throw new IllegalArgumentException("Account not found");
+        }
+        HistoryQuery query = new HistoryQuery(accountNumber).setPageSize(STATEMENT_PAGE_SIZE)
+                .setFrom(from).setTo(to);
+        try (StatementWriter writer = new StatementWriter(FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING), format)) {
+            writer.writeHeader(account, from, to);
+            HistoryPage page;
+            do {
+                page = ledger.findPage(query);
+                for (Transaction transaction : page.getTransactions()) {
+                    writer.write(transaction);
+                }
+                query.setContinuationToken(page.getContinuationToken());
+            } while (page.hasMore());
+            return writer.getRowCount();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write statement " + file, e);
+        }
+    }
+    
+    /**
+     * Start a single-writer SequencerEngine over these accounts
+     * Handlers run behind the business logic, e.g. for replication.
+     * The engine is closed together with this service.
+     */
+    public synchronized SequencerEngine startSequencer(int ringSize, CommandHandler... handlers) {
+        if (sequencer != null) {
+            throw new IllegalStateException("Sequencer already started");
+        }
+        sequencer = new SequencerEngine(this, ringSize, handlers);
+        sequencer.start();
+        return sequencer;
+    }
+    
+    /**
+     * Start month-end interest accrual for all savings accounts
+     * Runs in the background on the common ForkJoinPool; poll the returned
+     * job for progress or wait on its completion. Starting a period whose
+     * run was interrupted resumes it; a period already accrued is refused.
+     */
+    public synchronized InterestAccrual startInterestAccrual(YearMonth period) {
+        if (accrual != null && !accrual.isDone()) {
+            throw new IllegalStateException("Interest accrual for " + accrual.getPeriod() + " is running");
+        }
+        AccrualRun run;
+        Set<String> alreadyCredited = Collections.emptySet();
+        try {
+            run = AccrualRun.load(dataDirectory());
+            if (run != null && !run.isDone()) {
+                if (!run.getPeriod().equals(period)) {
+                    throw new IllegalStateException("Interest accrual for " + run.getPeriod() + " is unfinished");
+                }
+                alreadyCredited = ledger.findAccountsPosted(run.getLedgerStart(), InterestAccrual.TYPE,
+                        InterestAccrual.description(period));
+            } else if (run != null && !period.isAfter(run.getPeriod())) {
+                throw new IllegalStateException("Interest up to " + run.getPeriod() + " is already accrued");
+            } else {
+                new AccrualRun(period, ledger.size(), false).save(dataDirectory());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not record interest accrual run", e);
+        }
+        accrual = new InterestAccrual(this, period, alreadyCredited, accounts.size());
+        accrual.start(ForkJoinPool.commonPool());
+        return accrual;
+    }
+    
+    /**
+     * The running or most recent interest accrual, or null
+     */
+    public synchronized InterestAccrual getInterestAccrual() {
+        return accrual;
+    }
+    
+    /**
+     * Totals over all accounts (deposits, overdraft exposure, accounts by
+     * type); maintained on every posting, so cheap enough to poll
+     */
+    public AccountTotals getAccountTotals() {
+        return aggregates.snapshot();
+    }
+    
+    /**
+     * Receive every account opening and transaction as it is journaled
+     * See ChangeListener: the listener runs on the posting thread
+     */
+    public void subscribe(ChangeListener listener) {
+        changes.subscribe(listener);
+    }
+    
+    public void unsubscribe(ChangeListener listener) {
+        changes.unsubscribe(listener);
+    }
+    
+    /**
+     * Open a cursor on the change feed at an offset (0 is the beginning),
+     * holding at most bufferSize events in memory
+     */
+    public ChangeFeed openChangeFeed(long fromOffset, int bufferSize) {
+        return new ChangeFeed(changes, ledger, fromOffset, bufferSize);
+    }
+    
+    /**
+     * Offset one past the latest committed entry of the change feed
+     */
+    public long getChangeFeedEnd() {
+        return ledger.getChangeCount();
+    }
+    
+    /**
+     * Journal commit counters (batch size, commit latency)
+     */
+    public CommitMetrics getCommitMetrics() {
+        return journal.getMetrics();
+    }
+    
+    /**
+     * Up to maxCount accounts starting at a position in creation order
+     * For paging through the accounts without copying all of them
+     */
+    public List<Account> getAccounts(int fromIndex, int maxCount) {
+        List<Account> all = accounts.values();
+        int size = all.size();
+        int from = Math.min(Math.max(fromIndex, 0), size);
+        int to = (int) Math.min((long) from + maxCount, size);
+        return new ArrayList<>(all.subList(from, to));
+    }
+    
+    /**
+     * Get all accounts
+     */
+    public Collection<Account> getAllAccounts() {
+        return accounts.values();
+    }
+    
+    /**
+     * Fold the journal into the snapshot files now instead of waiting
+     * for the background checkpointer
+     */
+    public void checkpoint() {
+        try {
+            checkpointer.checkpoint();
+        } catch (IOException e) {
+            System.out.println("Warning: Could not save data - " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Stop background work, checkpoint and release the journal and ledger
+     */
+    @Override
+    public void close() {
+        InterestAccrual running;
+        synchronized (this) {
+            if (sequencer != null) {
+                sequencer.close();
+            }
+            running = accrual;
+        }
+        if (running != null) {
+            // A failed run is resumed on the next start; only wait for it here
+            running.getCompletion().exceptionally(e -> null).join();
+        }
+        checkpointer.close();
+        checkpoint();
+        idReservation.trimTo(idGenerator.lastIssued());
+        try {
+            if (slots != null) {
+                slots.sync(checkpointer.getLastCheckpointLsn());
+                slots.close();
+            }
+            journal.close();
+            ledger.close();
+        } catch (IOException e) {
+            System.out.println("Warning: Could not close journal - " + e.getMessage());
+        }
+    }
+    
+    static Account newAccount(String accountNumber, String accountHolderName, String accountType) {
         switch (accountType.toLowerCase()) {
             case "savings":
-                account = new SavingsAccount(accountNumber, accountHolderName, 3.5);
-                break;
+                return new SavingsAccount(accountNumber, accountHolderName, 3.5);
             case "checking":
-                account = new CheckingAccount(accountNumber, accountHolderName, 500.0);
-                break;
+                return new CheckingAccount(accountNumber, accountHolderName, 500.0);
             default:
-                account = new BankAccount(accountNumber, accountHolderName, "Regular");
+                return new BankAccount(accountNumber, accountHolderName, "Regular");
         }
-        
-        accounts.put(accountNumber, account);
-        saveData();
-        return account;
     }
     
     /**
-     * Deposit money into an account
+     * Add an account in memory and journal it
+     * The account object itself is journaled; the one stored may be a
+     * view over its AccountSlots copy, so look it up afterwards.
+     * Returns the journal's durability future; throws
+     * IllegalStateException, leaving no trace, if the journal refused it
      */
-    public boolean deposit(String accountNumber, double amount) {
-        Account account = accounts.get(accountNumber);
+    CompletableFuture<Long> applyCreateAccount(Account account) {
+        // Journaled before the account becomes visible, so no posting to it
+        // can reach the journal ahead of its creation
+        synchronized (accounts) {
+            if (accounts.handleOf(account.getAccountNumber()) != AccountDirectory.NO_HANDLE) {
+                throw new IllegalArgumentException("Account number already exists");
+            }
+            CompletableFuture<Long> durable = journal.logAccountOpened(account);
+            if (notJournaled(durable)) {
+                // Postings to it would replay without the account
+                throw new IllegalStateException("Could not save account " + account.getAccountNumber());
+            }
+            // Counted before it becomes visible, so totals read after a
+            // lookup finds the account already include it
+            aggregates.accountAdded(account);
+            accounts.add(live(account));
+            return durable;
+        }
+    }
+    
+    /**
+     * Apply a deposit in memory and journal it
+     * Returns the journal's durability future, or null if it was refused
+     * (a deposit the journal rejected is undone)
+     */
+    CompletableFuture<Long> applyDeposit(String accountNumber, double amount) {
+        return applyDeposit(accounts.handleOf(accountNumber), amount);
+    }
+    
+    CompletableFuture<Long> applyDeposit(int accountHandle, double amount) {
+        long cents;
+        try {
+            cents = Money.toCents(amount);
+        } catch (IllegalArgumentException e) {
+            System.out.println("Error: " + e.getMessage());
+            return null;
+        }
+        return applyDepositCents(accountHandle, cents);
+    }
+    
+    /**
+     * Deposit whole cents to an account given by handle, without waiting
+     * for durability; for front ends that await a batch of postings
+     * together. Returns the journal's durability future, or null if it
+     * was refused
+     */
+    public CompletableFuture<Long> applyDepositCents(int accountHandle, long cents) {
+        Account account = accounts.get(accountHandle);
         if (account == null) {
-            return false;
+            return null;
         }
         
+        long balanceAfter;
         try {
-            account.deposit(amount);
-            recordTransaction(accountNumber, "DEPOSIT", amount, account.getBalance(), 
-                            "Deposit to account");
-            saveData();
-            return true;
+            balanceAfter = credit(account, cents);
         } catch (IllegalArgumentException e) {
             System.out.println("Error: " + e.getMessage());
-            return false;
+            return null;
+        }
+        Transaction deposit = recordTransaction(account, "DEPOSIT", cents, balanceAfter, "Deposit to account");
+        CompletableFuture<Long> durable = journal.logTransactions(deposit);
+        if (notJournaled(durable)) {
+            adjust(account, -cents);
+            return null;
         }
+        return durable;
     }
     
     /**
-     * Withdraw money from an account
+     * Apply a withdrawal in memory and journal it
+     * Returns the journal's durability future, or null if it was refused
+     * (a withdrawal the journal rejected is undone)
      */
-    public boolean withdraw(String accountNumber, double amount) {
-        Account account = accounts.get(accountNumber);
+    CompletableFuture<Long> applyWithdraw(String accountNumber, double amount) {
+        return applyWithdraw(accounts.handleOf(accountNumber), amount);
+    }
+    
+    CompletableFuture<Long> applyWithdraw(int accountHandle, double amount) {
+        long cents;
+        try {
+            cents = Money.toCents(amount);
+        } catch (IllegalArgumentException e) {
+            System.out.println("Error: " + e.getMessage());
+            return null;
+        }
+        return applyWithdrawCents(accountHandle, cents);
+    }
+    
+    /**
+     * Withdraw whole cents from an account given by handle (see
+     * applyDepositCents)
+     */
+    public CompletableFuture<Long> applyWithdrawCents(int accountHandle, long cents) {
+        Account account = accounts.get(accountHandle);
         if (account == null) {
-            return false;
+            return null;
         }
         
+        long balanceAfter;
         try {
-            if (account.withdraw(amount)) {
-                recordTransaction(accountNumber, "WITHDRAWAL", amount, account.getBalance(), 
-                                "Withdrawal from account");
-                saveData();
-                return true;
-            }
-            return false;
+            balanceAfter = debit(account, cents);
         } catch (IllegalArgumentException e) {
             System.out.println("Error: " + e.getMessage());
-            return false;
+            return null;
         }
+        if (balanceAfter == Account.INSUFFICIENT_FUNDS) {
+            return null;
+        }
+        Transaction withdrawal = recordTransaction(account, "WITHDRAWAL", cents, balanceAfter,
+                "Withdrawal from account");
+        CompletableFuture<Long> durable = journal.logTransactions(withdrawal);
+        if (notJournaled(durable)) {
+            adjust(account, cents);
+            return null;
+        }
+        return durable;
     }
     
     /**
-     * Transfer money between accounts
+     * Apply a transfer in memory and journal both legs as one entry
+     * Both accounts are locked in a fixed order, so opposite transfers
+     * between the same pair cannot deadlock. If the second leg or the
+     * journal entry fails, the legs already applied are undone before the
+     * locks are released. Returns the journal's durability future, or
+     * null if the transfer was refused or rolled back
      */
-    public boolean transfer(String fromAccountNumber, String toAccountNumber, double amount) {
-        Account fromAccount = accounts.get(fromAccountNumber);
-        Account toAccount = accounts.get(toAccountNumber);
+    CompletableFuture<Long> applyTransfer(String fromAccountNumber, String toAccountNumber, double amount) {
+        return applyTransfer(accounts.handleOf(fromAccountNumber), accounts.handleOf(toAccountNumber), amount);
+    }
+    
+    CompletableFuture<Long> applyTransfer(int fromAccountHandle, int toAccountHandle, double amount) {
+        long cents;
+        try {
+            cents = Money.toCents(amount);
+        } catch (IllegalArgumentException e) {
+            System.out.println("Error: " + e.getMessage());
+            return null;
+        }
+        return applyTransferCents(fromAccountHandle, toAccountHandle, cents);
+    }
+    
+    /**
+     * Transfer whole cents between accounts given by handle (see
+     * applyDepositCents)
+     */
+    public CompletableFuture<Long> applyTransferCents(int fromAccountHandle, int toAccountHandle, long cents) {
+        Account fromAccount = accounts.get(fromAccountHandle);
+        Account toAccount = accounts.get(toAccountHandle);
         
         if (fromAccount == null || toAccount == null) {
-            return false;
+            return null;
         }
         
+        ReentrantLock[] held = locks.lock(fromAccountHandle, toAccountHandle);
         try {
-            if (fromAccount.withdraw(amount)) {
-                toAccount.deposit(amount);
-                
-                recordTransaction(fromAccountNumber, "TRANSFER_OUT", amount, fromAccount.getBalance(),
-                                "Transfer to " + toAccountNumber);
-                recordTransaction(toAccountNumber, "TRANSFER_IN", amount, toAccount.getBalance(),
-                                "Transfer from " + fromAccountNumber);
-                saveData();
-                return true;
+            long fromBalance = debit(fromAccount, cents);
+            if (fromBalance == Account.INSUFFICIENT_FUNDS) {
+                return null;
             }
-            return false;
+            long toBalance;
+            try {
+                toBalance = credit(toAccount, cents);
+            } catch (RuntimeException e) {
+                adjust(fromAccount, cents);
+                throw e;
+            }
+            
+            Transaction out = recordTransaction(fromAccount, "TRANSFER_OUT", cents,
+                    fromBalance, "Transfer to " + toAccount.getAccountNumber());
+            Transaction in = recordTransaction(toAccount, "TRANSFER_IN", cents,
+                    toBalance, "Transfer from " + fromAccount.getAccountNumber());
+            CompletableFuture<Long> durable = journal.logTransactions(out, in);
+            if (notJournaled(durable)) {
+                adjust(toAccount, -cents);
+                adjust(fromAccount, cents);
+                return null;
+            }
+            return durable;
         } catch (IllegalArgumentException e) {
             System.out.println("Error: " + e.getMessage());
-            return false;
+            return null;
+        } finally {
+            AccountLocks.unlock(held);
         }
     }
     
     /**
-     * Get account by account number
+     * Apply a bulk posting in memory and journal it as one operation
+     * Fills results with one entry per instruction. Returns the journal's
+     * durability future, or null if nothing was applied
      */
-    public Account getAccount(String accountNumber) {
-        return accounts.get(accountNumber);
+    CompletableFuture<Long> applyBatch(List<TransferInstruction> instructions, BatchMode mode,
+                                       TransferResult[] results) {
+        int size = instructions.size();
+        Account[] from = new Account[size];
+        Account[] to = new Account[size];
+        long[] cents = new long[size];
+        int[] involved = new int[size * 2];
+        int involvedCount = 0;
+        boolean valid = true;
+        for (int i = 0; i < size; i++) {
+            TransferInstruction instruction = instructions.get(i);
+            int fromHandle = accounts.handleOf(instruction.getFromAccountNumber());
+            int toHandle = accounts.handleOf(instruction.getToAccountNumber());
+            from[i] = accounts.get(fromHandle);
+            to[i] = accounts.get(toHandle);
+            cents[i] = batchCents(instruction.getAmount());
+            if (from[i] == null || to[i] == null) {
+                results[i] = TransferResult.UNKNOWN_ACCOUNT;
+                valid = false;
+            } else if (cents[i] <= 0) {
+                results[i] = TransferResult.INVALID_AMOUNT;
+                valid = false;
+            } else {
+                involved[involvedCount++] = fromHandle;
+                involved[involvedCount++] = toHandle;
+            }
+        }
+        if (!valid && mode == BatchMode.ALL_OR_NOTHING) {
+            abortRemaining(results);
+            return null;
+        }
+        
+        List<Transaction> posted = new ArrayList<>(size * 2);
+        ReentrantLock[] held = locks.lockAll(Arrays.copyOf(involved, involvedCount));
+        try {
+            if (mode == BatchMode.ALL_OR_NOTHING) {
+                applyAllOrNothing(instructions, from, to, cents, results, posted);
+            } else {
+                applyBestEffort(instructions, from, to, cents, results, posted);
+            }
+            if (posted.isEmpty()) {
+                return null;
+            }
+            CompletableFuture<Long> durable = journal.logTransactions(posted.toArray(new Transaction[0]));
+            if (notJournaled(durable)) {
+                for (int i = 0; i < size; i++) {
+                    if (results[i] == TransferResult.APPLIED) {
+                        adjust(to[i], -cents[i]);
+                        adjust(from[i], cents[i]);
+                        results[i] = TransferResult.ABORTED;
+                    }
+                }
+                return null;
+            }
+            return durable;
+        } finally {
+            AccountLocks.unlock(held);
+        }
+    }
+    
+    private void applyBestEffort(List<TransferInstruction> instructions, Account[] from, Account[] to,
+                                 long[] cents, TransferResult[] results, List<Transaction> posted) {
+        for (int i = 0; i < instructions.size(); i++) {
+            if (results[i] != null) {
+                continue;
+            }
+            long fromBalance = debit(from[i], cents[i]);
+            if (fromBalance == Account.INSUFFICIENT_FUNDS) {
+                results[i] = TransferResult.INSUFFICIENT_FUNDS;
+                continue;
+            }
+            long toBalance;
+            try {
+                toBalance = credit(to[i], cents[i]);
+            } catch (IllegalArgumentException e) {
+                adjust(from[i], cents[i]);
+                results[i] = TransferResult.INVALID_AMOUNT;
+                continue;
+            }
+            addTransferLegs(from[i], to[i], cents[i], fromBalance, toBalance, posted);
+            results[i] = TransferResult.APPLIED;
+        }
     }
     
     /**
-     * Get transaction history for an account
+     * Apply every transfer or none
+     * Credits are held back until all debits have succeeded, and a debit
+     * first uses credits the account received earlier in the batch, so
+     * the outcome matches applying the transfers in order. A failure only
+     * has to give back debits, which can never be refused; a held-back
+     * credit that would overflow a balance also takes back the credits
+     * made before it.
+     *
+     * Each leg's balanceAfter comes from the balance a debit or credit
+     * actually returned, so deposits made meanwhile without the batch
+     * locks are reflected: a leg that moved no money itself is the
+     * account's actual balance at its next debit or credit plus the
+     * credits still held back at that leg.
      */
-    public List<Transaction> getTransactionHistory(String accountNumber) {
-        List<Transaction> accountTransactions = new ArrayList<>();
-        for (Transaction transaction : transactions) {
-            if (transaction.getAccountNumber().equals(accountNumber)) {
-                accountTransactions.add(transaction);
+    private void applyAllOrNothing(List<TransferInstruction> instructions, Account[] from, Account[] to,
+                                   long[] cents, TransferResult[] results, List<Transaction> posted) {
+        int size = instructions.size();
+        // Per account: {credits held back, anchor of its unresolved legs or -1}
+        Map<Account, long[]> state = new IdentityHashMap<>();
+        long[] charged = new long[size];
+        // Leg 2i is transfer i's debit, 2i + 1 its credit; an anchored leg
+        // holds the credits held back and adds its anchor's balance
+        long[] balances = new long[size * 2];
+        int[] legAnchors = new int[size * 2];
+        long[] anchors = new long[size * 2];
+        int anchorCount = 0;
+        for (int i = 0; i < size; i++) {
+            long[] fromState = batchState(state, from[i]);
+            long heldCredit = Math.min(fromState[0], cents[i]);
+            long charge = cents[i] - heldCredit;
+            fromState[0] -= heldCredit;
+            if (charge > 0) {
+                long balanceAfter = debit(from[i], charge);
+                if (balanceAfter == Account.INSUFFICIENT_FUNDS) {
+                    for (int j = 0; j < i; j++) {
+                        adjust(from[j], charged[j]);
+                    }
+                    results[i] = TransferResult.INSUFFICIENT_FUNDS;
+                    abortRemaining(results);
+                    return;
+                }
+                resolveAnchor(fromState, anchors, balanceAfter + charge);
+                legAnchors[2 * i] = -1;
+                balances[2 * i] = balanceAfter + fromState[0];
+            } else {
+                if (fromState[1] < 0) {
+                    fromState[1] = anchorCount++;
+                }
+                legAnchors[2 * i] = (int) fromState[1];
+                balances[2 * i] = fromState[0];
+            }
+            charged[i] = charge;
+            
+            long[] toState = batchState(state, to[i]);
+            toState[0] += cents[i];
+            if (toState[1] < 0) {
+                toState[1] = anchorCount++;
             }
+            legAnchors[2 * i + 1] = (int) toState[1];
+            balances[2 * i + 1] = toState[0];
+        }
+        
+        List<Map.Entry<Account, long[]>> credited = new ArrayList<>(state.size());
+        try {
+            for (Map.Entry<Account, long[]> entry : state.entrySet()) {
+                long[] accountState = entry.getValue();
+                if (accountState[0] > 0) {
+                    long balanceAfter = credit(entry.getKey(), accountState[0]);
+                    credited.add(entry);
+                    resolveAnchor(accountState, anchors, balanceAfter - accountState[0]);
+                } else if (accountState[1] >= 0) {
+                    // Its credits were all spent again: nothing left to apply
+                    resolveAnchor(accountState, anchors, entry.getKey().getBalanceCents());
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            // A credit would overflow its balance: give everything back
+            for (Map.Entry<Account, long[]> entry : credited) {
+                adjust(entry.getKey(), -entry.getValue()[0]);
+            }
+            for (int i = 0; i < size; i++) {
+                adjust(from[i], charged[i]);
+            }
+            abortRemaining(results);
+            return;
+        }
+        for (int leg = 0; leg < size * 2; leg++) {
+            if (legAnchors[leg] >= 0) {
+                balances[leg] += anchors[legAnchors[leg]];
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            addTransferLegs(from[i], to[i], cents[i], balances[2 * i], balances[2 * i + 1], posted);
+            results[i] = TransferResult.APPLIED;
         }
-        return accountTransactions;
     }
     
     /**
-     * Get all accounts
+     * An instruction's amount in cents, or 0 (refused as invalid) if it
+     * is out of range
      */
-    public Collection<Account> getAllAccounts() {
-        return accounts.values();
+    private static long batchCents(double amount) {
+        try {
+            return Money.toCents(amount);
+        } catch (IllegalArgumentException e) {
+            return 0;
+        }
+    }
+    
+    private static long[] batchState(Map<Account, long[]> state, Account account) {
+        long[] entry = state.get(account);
+        if (entry == null) {
+            entry = new long[] { 0, -1 };
+            state.put(account, entry);
+        }
+        return entry;
     }
     
     /**
-     * Record a transaction
+     * The account's actual balance before its current debit or credit
+     * fixes the legs waiting on its anchor
      */
-    private void recordTransaction(String accountNumber, String type, double amount, 
-                                   double balanceAfter, String description) {
-        String transactionId = String.format("TXN%05d", transactionCounter++);
-        Transaction transaction = new Transaction(transactionId, accountNumber, type, 
-                                                 amount, balanceAfter, description);
-        transactions.add(transaction);
+    private static void resolveAnchor(long[] accountState, long[] anchors, long balanceBefore) {
+        if (accountState[1] >= 0) {
+            anchors[(int) accountState[1]] = balanceBefore;
+            accountState[1] = -1;
+        }
+    }
+    
+    private static void abortRemaining(TransferResult[] results) {
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] == null) {
+                results[i] = TransferResult.ABORTED;
+            }
+        }
+    }
+    
+    private void addTransferLegs(Account from, Account to, long cents, long fromBalance,
+                                 long toBalance, List<Transaction> posted) {
+        posted.add(recordTransaction(from, "TRANSFER_OUT", cents,
+                fromBalance, "Transfer to " + to.getAccountNumber()));
+        posted.add(recordTransaction(to, "TRANSFER_IN", cents,
+                toBalance, "Transfer from " + from.getAccountNumber()));
     }
     
     /**
-     * Save data to files - Demonstrates File I/O
+     * Balance changes go through these three so the aggregates see each
+     * one with the balance it left behind
      */
-    private void saveData() {
-        try {
-            // Save accounts
-            try (ObjectOutputStream oos = new ObjectOutputStream(
-                    new FileOutputStream(ACCOUNTS_FILE))) {
-                oos.writeObject(accounts);
-            }
-            
-            // Save transactions
-            try (ObjectOutputStream oos = new ObjectOutputStream(
-                    new FileOutputStream(TRANSACTIONS_FILE))) {
-                oos.writeObject(transactions);
-                oos.writeInt(transactionCounter);
+    long credit(Account account, long cents) {
+        long balanceAfter = account.depositCents(cents);
+        aggregates.balanceChanged(balanceAfter - cents, balanceAfter);
+        return balanceAfter;
+    }
+    
+    long debit(Account account, long cents) {
+        long balanceAfter = account.withdrawCents(cents);
+        if (balanceAfter != Account.INSUFFICIENT_FUNDS) {
+            aggregates.balanceChanged(balanceAfter + cents, balanceAfter);
+        }
+        return balanceAfter;
+    }
+    
+    void adjust(Account account, long deltaCents) {
+        long balanceAfter = account.adjustBalanceCents(deltaCents);
+        aggregates.balanceChanged(balanceAfter - deltaCents, balanceAfter);
+    }
+    
+    /**
+     * Credit interest to a group of accounts and journal it as one entry
+     * Returns the journal's durability future, or null if the journal
+     * rejected the entry and the credits were undone
+     */
+    CompletableFuture<Long> applyInterest(Account[] credited, long[] cents, int count, String description) {
+        Transaction[] legs = new Transaction[count];
+        for (int i = 0; i < count; i++) {
+            long balanceAfter = credit(credited[i], cents[i]);
+            legs[i] = recordTransaction(credited[i], InterestAccrual.TYPE, cents[i], balanceAfter, description);
+        }
+        CompletableFuture<Long> durable = journal.logTransactions(legs);
+        if (notJournaled(durable)) {
+            for (int i = 0; i < count; i++) {
+                adjust(credited[i], -cents[i]);
             }
+            return null;
+        }
+        return durable;
+    }
+    
+    /**
+     * Mark an accrual run complete once all its credits are durable
+     */
+    void finishAccrual(InterestAccrual finished) {
+        AccrualRun run;
+        try {
+            run = AccrualRun.load(dataDirectory());
+            new AccrualRun(finished.getPeriod(), run.getLedgerStart(), true).save(dataDirectory());
         } catch (IOException e) {
-            System.out.println("Warning: Could not save data - " + e.getMessage());
+            throw new UncheckedIOException("Could not record interest accrual run", e);
+        }
+    }
+    
+    /**
+     * Create a transaction record; journaling it also appends it to the ledger
+     * The record shares the account's interned number instead of the
+     * caller's copy
+     */
+    Transaction recordTransaction(Account account, String type, long cents, 
+                                          long balanceAfterCents, String description) {
+        return new Transaction(idGenerator.nextId(), account.getAccountNumber(), type, Money.toAmount(cents),
+                               Money.toAmount(balanceAfterCents), description);
+    }
+    
+    /**
+     * Journal transactions as one operation (used by SequencerEngine)
+     */
+    CompletableFuture<Long> logTransactions(Transaction... transactions) {
+        return journal.logTransactions(transactions);
+    }
+    
+    /**
+     * True if the journal rejected an entry outright, so it will never be
+     * replayed and its in-memory effects must be undone
+     * (a failure reported later, after the fsync, cannot be undone safely)
+     */
+    private static boolean notJournaled(CompletableFuture<Long> durable) {
+        if (!durable.isCompletedExceptionally()) {
+            return false;
+        }
+        try {
+            durable.join();
+        } catch (CompletionException e) {
+            System.out.println("Warning: Could not save data - " + e.getCause().getMessage());
+        }
+        return true;
+    }
+    
+    /**
+     * Wait for an applied operation to become durable; false if it was refused
+     */
+    private boolean awaitApplied(CompletableFuture<Long> durable) {
+        if (durable == null) {
+            return false;
+        }
+        awaitDurable(durable);
+        return true;
+    }
+    
+    /**
+     * Block until a committed operation is durable
+     */
+    private void awaitDurable(CompletableFuture<Long> durable) {
+        try {
+            durable.join();
+        } catch (CompletionException e) {
+            System.out.println("Warning: Could not save data - " + e.getCause().getMessage());
         }
     }
     
     /**
      * Load data from files - Demonstrates File I/O
+     * Reads the snapshot, then replays journal records newer than it (and
+     * newer than the ledger) into both.
+     * Returns the oldest LSN covered by the snapshot files and ledger.
      */
-    @SuppressWarnings("unchecked")
-    private void loadData() {
+    private long loadData() {
+        Snapshot snapshot;
         try {
-            // Load accounts
-            File accountsFile = new File(ACCOUNTS_FILE);
-            if (accountsFile.exists()) {
-                try (ObjectInputStream ois = new ObjectInputStream(
-                        new FileInputStream(ACCOUNTS_FILE))) {
-                    accounts = (Map<String, Account>) ois.readObject();
+            LegacyDataMigrator.migrateIfNeeded(dataDirectory(), ledger);
+            snapshot = Snapshot.load(dataDirectory());
+        } catch (IOException e) {
+            System.out.println("Note: Starting with fresh data - " + e.getMessage());
+            snapshot = new Snapshot();
+        }
+        
+        final Snapshot accountsSnapshot = snapshot;
+        long snapshotLsn = Math.min(snapshot.getLsn(), ledger.getLsn());
+        try {
+            journal.replay(new Journal.Listener() {
+                @Override
+                public void accountOpened(long lsn, Account account) {
+                    accountsSnapshot.accountOpened(lsn, account);
+                    ledger.accountOpened(lsn, account);
                 }
-            }
-            
-            // Load transactions
-            File transactionsFile = new File(TRANSACTIONS_FILE);
-            if (transactionsFile.exists()) {
-                try (ObjectInputStream ois = new ObjectInputStream(
-                        new FileInputStream(TRANSACTIONS_FILE))) {
-                    transactions = (List<Transaction>) ois.readObject();
-                    transactionCounter = ois.readInt();
+                
+                @Override
+                public void transactionPosted(long lsn, Transaction transaction) {
+                    accountsSnapshot.transactionPosted(lsn, transaction);
+                    ledger.transactionPosted(lsn, transaction);
                 }
-            }
-        } catch (IOException | ClassNotFoundException e) {
-            System.out.println("Note: Starting with fresh data - " + e.getMessage());
+            });
+            journal.advancePast(Math.max(snapshot.getLsn(), ledger.getLsn()));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not replay journal", e);
+        }
+        if (ledger.needsExistingAccounts()) {
+            // Ledger from before the change feed: its accounts open the feed
+            ledger.recordExistingAccounts(snapshot.getAccounts().values());
+        }
+        // Everything replayed was already in the journal
+        ledger.committed(journal.getLastLsn(), true);
+        for (Account account : snapshot.getAccounts().values()) {
+            accounts.add(live(account));
+            aggregates.accountAdded(account);
         }
+        return snapshotLsn;
+    }
+    
+    /**
+     * The account to keep in the directory: the object itself, or a view
+     * over its copy in AccountSlots
+     */
+    private Account live(Account account) {
+        return slots == null ? account : slots.adopt(account);
+    }
+    
+    private TransactionIdGenerator createIdGenerator() {
+        switch (config.getTransactionIdStrategy()) {
+            case THREAD_BLOCK:
+                return new ThreadBlockIdGenerator(idReservation);
+            case TIME_ORDERED:
+                return new TimeOrderedIdGenerator(idReservation);
+            default:
+                return new SequenceIdGenerator(idReservation);
+        }
+    }
+    
+    private Path dataDirectory() {
+        return Paths.get(config.getDataDirectory());
     }
 }
@@ -0,0 +1,149 @@
+package com.banking.service;
+
+import com.banking.model.*;
+import com.banking.persistence.TransactionLog;
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * ChangeFeed - A consumer's cursor over the change feed
+ * Delivers every account opening and transaction in posting order, each
+ * with its offset (see ChangeEvent). The feed is read from the ledger, so
+ * a consumer may start at any offset it stored earlier, and offset 0
+ * replays the whole history in one sequential pass over the ledger files.
+ *
+ * Only changes whose journal write has completed are delivered, so an
+ * offset never names a posting that a crash could take back.
+ *
+ * Consumers pull: at most bufferSize events are held in memory, and the
+ * next batch is only read once those are taken. A slow consumer simply
+ * falls behind in the ledger; postings never wait for it. Once caught up
+ * the cursor sleeps until the next commit wakes it.
+ *
+ * A cursor belongs to one consumer thread; close() may come from any
+ * thread and ends a poll that is waiting.
+ */
+public class ChangeFeed implements Closeable {
+    private final ChangePublisher changes;
+    private final TransactionLog ledger;
+    private final int bufferSize;
+    private final ArrayDeque<ChangeEvent> buffer;
+    private final ReentrantLock lock;
+    private final Condition appended;
+    private final ChangeListener commits;
+    private volatile boolean waiting;
+    private volatile boolean closed;
+    private long offset;
+    
+    ChangeFeed(ChangePublisher changes, TransactionLog ledger, long offset, int bufferSize) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("Buffer size must be at least 1");
+        }
+        this.changes = changes;
+        this.ledger = ledger;
+        this.bufferSize = bufferSize;
+        this.buffer = new ArrayDeque<>(bufferSize);
+        this.lock = new ReentrantLock();
+        this.appended = lock.newCondition();
+        this.commits = new ChangeListener() {
+            @Override
+            public void committed(long lsn) {
+                wakeUp();
+            }
+        };
+        seek(offset);
+        changes.subscribe(commits);
+    }
+    
+    /**
+     * Next event, waiting up to timeout for one to be committed
+     * Returns null on timeout or once the cursor is closed
+     */
+    public ChangeEvent poll(long timeout, TimeUnit unit) throws InterruptedException {
+        if (buffer.isEmpty() && !fill(unit.toNanos(timeout))) {
+            return null;
+        }
+        ChangeEvent event = buffer.poll();
+        offset = event.getOffset() + 1;
+        return event;
+    }
+    
+    /**
+     * Offset of the next event poll returns; store it to resume later
+     */
+    public long getOffset() {
+        return offset;
+    }
+    
+    /**
+     * Offset one past the latest change committed
+     */
+    public long getEndOffset() {
+        return ledger.getChangeCount();
+    }
+    
+    /**
+     * Continue from another offset (0 replays everything)
+     */
+    public void seek(long offset) {
+        long end = ledger.getChangeCount();
+        if (offset < 0 || offset > end) {
+            throw new IllegalArgumentException("Offset must be between 0 and " + end);
+        }
+        buffer.clear();
+        this.offset = offset;
+    }
+    
+    @Override
+    public void close() {
+        closed = true;
+        changes.unsubscribe(commits);
+        wakeUp();
+    }
+    
+    /**
+     * Read the next batch from the ledger, waiting for commits if there
+     * is none; false on timeout or close
+     */
+    private boolean fill(long nanos) throws InterruptedException {
+        while (!closed) {
+            buffer.addAll(ledger.readChanges(offset, bufferSize));
+            if (!buffer.isEmpty()) {
+                return true;
+            }
+            lock.lock();
+            try {
+                // Set before the ledger is checked, so a commit after the
+                // check sees it and signals
+                waiting = true;
+                while (!closed && ledger.getChangeCount() <= offset) {
+                    if (nanos <= 0) {
+                        return false;
+                    }
+                    nanos = appended.awaitNanos(nanos);
+                }
+            } finally {
+                waiting = false;
+                lock.unlock();
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Called on the committing thread: only take the lock when the consumer waits
+     */
+    private void wakeUp() {
+        if (waiting) {
+            lock.lock();
+            try {
+                appended.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.banking.service;
+
+import com.banking.model.Account;
+import com.banking.model.Transaction;
+
+/**
+ * ChangeListener - Subscriber to account and transaction changes
+ * Called on the posting thread once the journal has accepted the
+ * posting, in journal order, while the journal is held: implementations
+ * must only hand the event off (e.g. to a queue) and return. The account passed to accountOpened is the one that was
+ * journaled; look the number up for the live account.
+ */
+public interface ChangeListener {
+    default void accountOpened(long lsn, Account account) {
+    }
+    
+    /**
+     * One transaction (one leg of a transfer); its balanceAfter is the
+     * account's balance right after it
+     */
+    default void transactionPosted(long lsn, Transaction transaction) {
+    }
+    
+    /**
+     * Everything up to lsn is written to the journal and in the change
+     * feed; called on the thread that completed the write
+     */
+    default void committed(long lsn) {
+    }
+}
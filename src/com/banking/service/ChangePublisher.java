@@ -0,0 +1,80 @@
+package com.banking.service;
+
+import com.banking.model.Account;
+import com.banking.model.Transaction;
+import com.banking.persistence.Journal;
+import com.banking.persistence.TransactionLog;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * ChangePublisher - Fans journal appends out to the ledger and subscribers
+ * The ledger sees each record first, so a subscriber that reacts by
+ * reading history finds the transaction it was told about, and each
+ * commit first, so one woken by committed() finds it in the change
+ * feed. A failing
+ * subscriber is reported and skipped; it never fails the posting.
+ */
+class ChangePublisher implements Journal.AppendListener {
+    private final TransactionLog ledger;
+    private final List<ChangeListener> listeners = new CopyOnWriteArrayList<>();
+    
+    ChangePublisher(TransactionLog ledger) {
+        this.ledger = ledger;
+    }
+    
+    void subscribe(ChangeListener listener) {
+        listeners.add(listener);
+    }
+    
+    void unsubscribe(ChangeListener listener) {
+        listeners.remove(listener);
+    }
+    
+    @Override
+    public void accountOpened(long lsn, Account account) {
+        ledger.accountOpened(lsn, account);
+        for (ChangeListener listener : listeners) {
+            try {
+                listener.accountOpened(lsn, account);
+            } catch (RuntimeException e) {
+                System.out.println("Warning: Change listener failed - " + e.getMessage());
+            }
+        }
+    }
+    
+    @Override
+    public void transactionPosted(long lsn, Transaction transaction) {
+        try {
+            ledger.transactionPosted(lsn, transaction);
+        } finally {
+            for (ChangeListener listener : listeners) {
+                try {
+                    listener.transactionPosted(lsn, transaction);
+                } catch (RuntimeException e) {
+                    System.out.println("Warning: Change listener failed - " + e.getMessage());
+                }
+            }
+        }
+    }
+    
+    @Override
+    public void cut(long lsn) {
+        ledger.cut(lsn);
+    }
+    
+    @Override
+    public void committed(long lsn, boolean written) {
+        ledger.committed(lsn, written);
+        if (!written) {
+            return;
+        }
+        for (ChangeListener listener : listeners) {
+            try {
+                listener.committed(lsn);
+            } catch (RuntimeException e) {
+                System.out.println("Warning: Change listener failed - " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.banking.service;
+
+/**
+ * CommandHandler - Consumer that runs behind the business logic of a
+ * SequencerEngine, e.g. to replicate postings to another node
+ * Sees every command in sequence order on its own thread, after the
+ * command has been applied and its transactions created. The command
+ * slot is reused once all handlers have passed it, so copy anything
+ * that has to outlive the call.
+ */
+public interface CommandHandler {
+    /**
+     * @param endOfBatch true for the last command currently available,
+     *                   a good point to flush buffered work
+     */
+    void onCommand(SequencerEngine.Command command, boolean endOfBatch) throws Exception;
+}
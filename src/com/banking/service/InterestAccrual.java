@@ -0,0 +1,219 @@
+package com.banking.service;
+
+import com.banking.model.*;
+import java.time.YearMonth;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * InterestAccrual - One month-end interest run over all savings accounts
+ * Accounts are split by handle range across a ForkJoinPool. Each leaf
+ * computes one month of interest in fixed point (annual rate in basis
+ * points, cents rounded half up) and posts its credits as one journal
+ * entry, so a chunk is applied entirely or not at all.
+ *
+ * The getters are the progress surface: they can be polled while the run
+ * is in flight. If the run fails or the process stops, starting the same
+ * period again resumes it and skips accounts already credited (see
+ * AccrualRun).
+ */
+public class InterestAccrual {
+    static final String TYPE = "INTEREST";
+    private static final int CHUNK_SIZE = 4096;
+    private static final long BASIS_POINTS_PER_MONTH_UNIT = 100L * 100 * 12;
+    
+    private final BankService service;
+    private final YearMonth period;
+    private final String description;
+    private final Set<String> alreadyCredited;
+    private final int accountCount;
+    private final boolean resumed;
+    private final AtomicLong processed;
+    private final AtomicLong credited;
+    private final AtomicLong interestCents;
+    private final AtomicLong chunksPosted;
+    private final Queue<CompletableFuture<Long>> durable;
+    private final CompletableFuture<InterestAccrual> completion;
+    private final long startedNanos;
+    private volatile long finishedNanos;
+    
+    InterestAccrual(BankService service, YearMonth period, Set<String> alreadyCredited, int accountCount) {
+        this.service = service;
+        this.period = period;
+        this.description = description(period);
+        this.alreadyCredited = alreadyCredited;
+        this.accountCount = accountCount;
+        this.resumed = !alreadyCredited.isEmpty();
+        this.processed = new AtomicLong();
+        this.credited = new AtomicLong();
+        this.interestCents = new AtomicLong();
+        this.chunksPosted = new AtomicLong();
+        this.durable = new ConcurrentLinkedQueue<>();
+        this.completion = new CompletableFuture<>();
+        this.startedNanos = System.nanoTime();
+    }
+    
+    /**
+     * Description of every interest posting of a period, e.g. "Interest for 2026-10"
+     */
+    static String description(YearMonth period) {
+        return "Interest for " + period;
+    }
+    
+    /**
+     * One month of interest on a balance, in cents (0 for a negative balance)
+     */
+    static long monthlyInterestCents(long balanceCents, double annualRatePercent) {
+        if (balanceCents <= 0) {
+            return 0;
+        }
+        long basisPoints = Math.round(annualRatePercent * 100);
+        long scaled = Math.multiplyExact(balanceCents, basisPoints);
+        return (scaled + BASIS_POINTS_PER_MONTH_UNIT / 2) / BASIS_POINTS_PER_MONTH_UNIT;
+    }
+    
+    void start(ForkJoinPool pool) {
+        CompletableFuture.runAsync(() -> pool.invoke(new Partition(0, accountCount)), pool)
+                .thenCompose(ignored -> CompletableFuture.allOf(durable.toArray(new CompletableFuture<?>[0])))
+                .whenComplete((ignored, error) -> {
+                    finishedNanos = System.nanoTime();
+                    if (error == null) {
+                        try {
+                            service.finishAccrual(this);
+                        } catch (RuntimeException e) {
+                            error = e;
+                        }
+                    }
+                    if (error == null) {
+                        completion.complete(this);
+                    } else {
+                        completion.completeExceptionally(error);
+                    }
+                });
+    }
+    
+    public YearMonth getPeriod() {
+        return period;
+    }
+    
+    /**
+     * Accounts the run covers (those that existed when it started)
+     */
+    public int getAccountCount() {
+        return accountCount;
+    }
+    
+    public long getAccountsProcessed() {
+        return processed.get();
+    }
+    
+    public long getAccountsCredited() {
+        return credited.get();
+    }
+    
+    public long getInterestCents() {
+        return interestCents.get();
+    }
+    
+    /**
+     * Journal entries posted so far (one per chunk with any credits)
+     */
+    public long getChunksPosted() {
+        return chunksPosted.get();
+    }
+    
+    /**
+     * True if this run picked up an interrupted run of the same period
+     */
+    public boolean isResumed() {
+        return resumed;
+    }
+    
+    /**
+     * Fraction of accounts processed, 0 to 1
+     */
+    public double getProgress() {
+        return accountCount == 0 ? 1 : (double) processed.get() / accountCount;
+    }
+    
+    public long getElapsedMillis() {
+        long end = finishedNanos == 0 ? System.nanoTime() : finishedNanos;
+        return TimeUnit.NANOSECONDS.toMillis(end - startedNanos);
+    }
+    
+    public boolean isDone() {
+        return completion.isDone();
+    }
+    
+    /**
+     * Completes once every credit is durable, or exceptionally if a chunk
+     * could not be journaled (start the period again to resume)
+     */
+    public CompletableFuture<InterestAccrual> getCompletion() {
+        return completion;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("Interest %s: %d/%d accounts, %d credited, $%.2f in %d entries, %d ms",
+            period, getAccountsProcessed(), accountCount, getAccountsCredited(),
+            Money.toAmount(getInterestCents()), getChunksPosted(), getElapsedMillis());
+    }
+    
+    /**
+     * A range of account handles; splits until it is one chunk
+     */
+    private final class Partition extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int from;
+        private final int to;
+        
+        Partition(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+        
+        @Override
+        protected void compute() {
+            if (to - from > CHUNK_SIZE) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Partition(from, middle), new Partition(middle, to));
+                return;
+            }
+            Account[] accounts = new Account[to - from];
+            long[] cents = new long[to - from];
+            int count = 0;
+            long total = 0;
+            for (int handle = from; handle < to; handle++) {
+                Account account = service.getAccount(handle);
+                double rate = account.getInterestRate();
+                if (rate <= 0 || alreadyCredited.contains(account.getAccountNumber())) {
+                    continue;
+                }
+                long interest = monthlyInterestCents(account.getBalanceCents(), rate);
+                if (interest > 0) {
+                    accounts[count] = account;
+                    cents[count++] = interest;
+                    total += interest;
+                }
+            }
+            if (count > 0) {
+                CompletableFuture<Long> posted = service.applyInterest(accounts, cents, count, description);
+                if (posted == null) {
+                    throw new IllegalStateException("Could not journal interest for " + period);
+                }
+                durable.add(posted);
+                credited.addAndGet(count);
+                interestCents.addAndGet(total);
+                chunksPosted.incrementAndGet();
+            }
+            processed.addAndGet(to - from);
+        }
+    }
+}
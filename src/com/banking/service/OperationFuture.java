@@ -0,0 +1,49 @@
+package com.banking.service;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * OperationFuture - Result of an asynchronous BankService operation
+ * The future itself completes as soon as the operation is applied in
+ * memory (visible to other callers); durable() completes with the same
+ * value once its journal record is on disk under the configured fsync
+ * policy. Callers wait on whichever guarantee they need.
+ */
+public class OperationFuture<T> extends CompletableFuture<T> {
+    private final CompletableFuture<T> durable = new CompletableFuture<>();
+    
+    /**
+     * Completes once the operation is durable, exceptionally if the
+     * operation or its journaling failed
+     */
+    public CompletableFuture<T> durable() {
+        return durable;
+    }
+    
+    /**
+     * Applied in memory now; durable when the journal says so
+     */
+    void applied(T value, CompletableFuture<Long> journaled) {
+        complete(value);
+        journaled.whenComplete((lsn, error) -> {
+            if (error != null) {
+                durable.completeExceptionally(error);
+            } else {
+                durable.complete(value);
+            }
+        });
+    }
+    
+    /**
+     * Nothing to journal (e.g. a refused withdrawal)
+     */
+    void settled(T value) {
+        complete(value);
+        durable.complete(value);
+    }
+    
+    void failed(Throwable error) {
+        completeExceptionally(error);
+        durable.completeExceptionally(error);
+    }
+}
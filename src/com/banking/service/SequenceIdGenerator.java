@@ -0,0 +1,35 @@
+package com.banking.service;
+
+import com.banking.persistence.IdReservation;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SequenceIdGenerator - Dense ids from one shared atomic counter
+ * The counter is bumped with a single getAndIncrement; only every
+ * RESERVE_AHEAD-th id touches the reservation file
+ */
+public class SequenceIdGenerator implements TransactionIdGenerator {
+    private static final long RESERVE_AHEAD = 1024;
+    
+    private final AtomicLong next;
+    private final IdReservation reservation;
+    
+    public SequenceIdGenerator(IdReservation reservation) {
+        this.reservation = reservation;
+        this.next = new AtomicLong(reservation.getReserved() + 1);
+    }
+    
+    @Override
+    public long nextId() {
+        long id = next.getAndIncrement();
+        if (id > reservation.getReserved()) {
+            reservation.reserveThrough(id, RESERVE_AHEAD);
+        }
+        return id;
+    }
+    
+    @Override
+    public long lastIssued() {
+        return next.get() - 1;
+    }
+}
@@ -0,0 +1,531 @@
+package com.banking.service;
+
+import com.banking.model.*;
+import java.io.Closeable;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * SequencerEngine - Single-writer execution engine (LMAX-style ring buffer)
+ * Deposits, withdrawals and transfers are published into a pre-allocated
+ * ring of reusable command slots. One business-logic thread takes them in
+ * sequence order and applies them; it is the only writer of balances, so
+ * it needs no locks.
+ *
+ * Consumers run behind the business logic on the same ring, each on its
+ * own thread: the journal stage writes every batch of available commands
+ * as one journal operation and completes the callers' futures once it is
+ * durable; CommandHandlers (e.g. replication) see the same commands in
+ * the same order. A slot is reused only after all consumers passed it.
+ *
+ * Ordering is deterministic: the journal holds the commands in exactly
+ * the order they were applied. If the journal refuses a batch, the engine
+ * stops accepting commands: the balance changes of that batch and of
+ * every command applied after it are given back, and their callers'
+ * futures fail, so memory matches what a restart replays. Accounts must
+ * still be created through
+ * BankService. Mixing direct BankService postings with the engine is safe
+ * (balances are compare-and-set) but loses the single-writer benefit.
+ */
+public class SequencerEngine implements Closeable {
+    private static final Transaction[] NONE = new Transaction[0];
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 200;
+    private static final long PARK_NANOS = 50_000;
+    
+    public enum CommandType {
+        DEPOSIT, WITHDRAW, TRANSFER
+    }
+    
+    /**
+     * One ring slot; filled by a publisher, completed by the business thread
+     */
+    public static final class Command {
+        private CommandType type;
+        private String accountNumber;
+        private String toAccountNumber;
+        private long cents;
+        private CompletableFuture<Boolean> result;
+        private boolean succeeded;
+        private Transaction[] transactions;
+        private RuntimeException failure;
+        private Account debited;
+        private Account credited;
+        
+        public CommandType getType() {
+            return type;
+        }
+        
+        /**
+         * Account deposited to / withdrawn from, or the source of a transfer
+         */
+        public String getAccountNumber() {
+            return accountNumber;
+        }
+        
+        /**
+         * Destination of a transfer, else null
+         */
+        public String getToAccountNumber() {
+            return toAccountNumber;
+        }
+        
+        public long getCents() {
+            return cents;
+        }
+        
+        public boolean isSucceeded() {
+            return succeeded;
+        }
+        
+        /**
+         * Transactions the command posted (none if it was refused)
+         */
+        public Transaction[] getTransactions() {
+            return transactions;
+        }
+    }
+    
+    private final BankService service;
+    private final Command[] ring;
+    private final int mask;
+    private final AtomicLongArray published;
+    private final AtomicLong claimed;
+    private final AtomicInteger publishing;
+    private final Stage business;
+    private final List<Stage> consumers;
+    private volatile boolean accepting;
+    private volatile boolean running;
+    
+    /**
+     * @param ringSize number of slots, rounded up to a power of two
+     * @param handlers consumers to run behind the business logic
+     */
+    public SequencerEngine(BankService service, int ringSize, CommandHandler... handlers) {
+        int size = Integer.highestOneBit(Math.max(1, ringSize - 1)) << 1;
+        this.service = service;
+        this.ring = new Command[size];
+        this.mask = size - 1;
+        this.published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            ring[i] = new Command();
+            published.set(i, -1);
+        }
+        this.claimed = new AtomicLong(-1);
+        this.publishing = new AtomicInteger();
+        
+        this.business = new Stage("sequencer-business", null) {
+            @Override
+            void onCommand(Command command, boolean endOfBatch) {
+                apply(command);
+            }
+        };
+        this.consumers = new ArrayList<>();
+        consumers.add(new JournalStage());
+        for (int i = 0; i < handlers.length; i++) {
+            final CommandHandler handler = handlers[i];
+            consumers.add(new Stage("sequencer-handler-" + (i + 1), business) {
+                @Override
+                void onCommand(Command command, boolean endOfBatch) {
+                    try {
+                        handler.onCommand(command, endOfBatch);
+                    } catch (Exception e) {
+                        System.out.println("Warning: Command handler failed - " + e.getMessage());
+                    }
+                }
+            });
+        }
+    }
+    
+    /**
+     * Start the business and consumer threads
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        accepting = true;
+        business.start();
+        for (Stage consumer : consumers) {
+            consumer.start();
+        }
+    }
+    
+    /**
+     * Completes with whether the deposit was applied, once it is durable
+     * (exceptionally if journaling failed)
+     */
+    public CompletableFuture<Boolean> deposit(String accountNumber, double amount) {
+        return publishAmount(CommandType.DEPOSIT, accountNumber, null, amount);
+    }
+    
+    public CompletableFuture<Boolean> withdraw(String accountNumber, double amount) {
+        return publishAmount(CommandType.WITHDRAW, accountNumber, null, amount);
+    }
+    
+    public CompletableFuture<Boolean> transfer(String fromAccountNumber, String toAccountNumber, double amount) {
+        return publishAmount(CommandType.TRANSFER, fromAccountNumber, toAccountNumber, amount);
+    }
+    
+    /**
+     * Sequence number of the last command applied by the business thread
+     */
+    public long getAppliedSequence() {
+        return business.cursor.get();
+    }
+    
+    /**
+     * Stop accepting commands, let the consumers drain the ring and stop
+     * Commands published before close() still complete normally: each
+     * stage ends once it has passed everything before it (see
+     * Stage.drained), and close() just waits for their threads
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            accepting = false;
+        }
+        business.join();
+        for (Stage consumer : consumers) {
+            consumer.join();
+        }
+        running = false;
+    }
+    
+    /**
+     * Publish with the amount in cents; an amount out of range is refused
+     * here, like a bad amount is refused by the business thread
+     */
+    private CompletableFuture<Boolean> publishAmount(CommandType type, String accountNumber,
+                                                     String toAccountNumber, double amount) {
+        long cents;
+        try {
+            cents = Money.toCents(amount);
+        } catch (IllegalArgumentException e) {
+            System.out.println("Error: " + e.getMessage());
+            return CompletableFuture.completedFuture(false);
+        }
+        return publish(type, accountNumber, toAccountNumber, cents);
+    }
+    
+    /**
+     * Claim the next slot, wait until no consumer still needs it, fill it
+     * and mark it published
+     */
+    private CompletableFuture<Boolean> publish(CommandType type, String accountNumber,
+                                               String toAccountNumber, long cents) {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        publishing.incrementAndGet();
+        try {
+            if (!accepting) {
+                result.completeExceptionally(new IllegalStateException("Sequencer is not running"));
+                return result;
+            }
+            long sequence = claimed.incrementAndGet();
+            int idle = 0;
+            while (sequence - ring.length > minimumConsumerSequence()) {
+                idle = backOff(idle);
+            }
+            Command command = ring[(int) sequence & mask];
+            command.type = type;
+            command.accountNumber = accountNumber;
+            command.toAccountNumber = toAccountNumber;
+            command.cents = cents;
+            command.result = result;
+            published.set((int) sequence & mask, sequence);
+        } finally {
+            publishing.decrementAndGet();
+        }
+        return result;
+    }
+    
+    /**
+     * Business logic; runs on the business thread only
+     */
+    private void apply(Command command) {
+        command.succeeded = false;
+        command.transactions = NONE;
+        command.failure = null;
+        command.debited = null;
+        command.credited = null;
+        try {
+            Account account = service.getAccount(command.accountNumber);
+            if (account == null) {
+                return;
+            }
+            long balanceAfter;
+            switch (command.type) {
+                case DEPOSIT:
+                    balanceAfter = service.credit(account, command.cents);
+                    command.credited = account;
+                    command.transactions = new Transaction[] {
+                        service.recordTransaction(account, "DEPOSIT", command.cents,
+                                balanceAfter, "Deposit to account")
+                    };
+                    break;
+                case WITHDRAW:
+                    balanceAfter = service.debit(account, command.cents);
+                    if (balanceAfter == Account.INSUFFICIENT_FUNDS) {
+                        return;
+                    }
+                    command.debited = account;
+                    command.transactions = new Transaction[] {
+                        service.recordTransaction(account, "WITHDRAWAL", command.cents,
+                                balanceAfter, "Withdrawal from account")
+                    };
+                    break;
+                default:
+                    Account toAccount = service.getAccount(command.toAccountNumber);
+                    if (toAccount == null) {
+                        return;
+                    }
+                    balanceAfter = service.debit(account, command.cents);
+                    if (balanceAfter == Account.INSUFFICIENT_FUNDS) {
+                        return;
+                    }
+                    command.debited = account;
+                    long toBalance = service.credit(toAccount, command.cents);
+                    command.credited = toAccount;
+                    command.transactions = new Transaction[] {
+                        service.recordTransaction(account, "TRANSFER_OUT", command.cents,
+                                balanceAfter, "Transfer to " + toAccount.getAccountNumber()),
+                        service.recordTransaction(toAccount, "TRANSFER_IN", command.cents,
+                                toBalance, "Transfer from " + account.getAccountNumber())
+                    };
+            }
+            command.succeeded = true;
+        } catch (IllegalArgumentException e) {
+            undo(command);
+            System.out.println("Error: " + e.getMessage());
+        } catch (RuntimeException e) {
+            undo(command);
+            command.failure = e;
+        }
+    }
+    
+    /**
+     * Give back the legs of a failed command that were already applied,
+     * so nothing of it stays in the balances
+     */
+    private void undo(Command command) {
+        giveBack(command);
+        command.transactions = NONE;
+    }
+    
+    /**
+     * Reverse the balance changes of a command's applied legs
+     * Balances are compare-and-set, so the journal stage may do this
+     * while the business thread keeps applying
+     */
+    private void giveBack(Command command) {
+        if (command.credited != null) {
+            service.adjust(command.credited, -command.cents);
+            command.credited = null;
+        }
+        if (command.debited != null) {
+            service.adjust(command.debited, command.cents);
+            command.debited = null;
+        }
+    }
+    
+    private long minimumConsumerSequence() {
+        long minimum = Long.MAX_VALUE;
+        for (Stage consumer : consumers) {
+            minimum = Math.min(minimum, consumer.cursor.get());
+        }
+        return minimum;
+    }
+    
+    /**
+     * Wait strategy: spin briefly, then yield, then sleep in short parks
+     */
+    private static int backOff(int idle) {
+        if (idle < SPIN_TRIES) {
+            Thread.onSpinWait();
+        } else if (idle < YIELD_TRIES) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+        return idle + 1;
+    }
+    
+    /**
+     * A thread consuming the ring in sequence order, in batches of
+     * whatever is available
+     */
+    private abstract class Stage implements Runnable {
+        final AtomicLong cursor = new AtomicLong(-1);
+        private final Stage upstream;
+        private final Thread thread;
+        private volatile boolean finished;
+        
+        /**
+         * @param upstream stage that must pass a sequence first, or null
+         *                 to read what publishers have published
+         */
+        Stage(String name, Stage upstream) {
+            this.upstream = upstream;
+            this.thread = new Thread(this, name);
+            thread.setDaemon(true);
+        }
+        
+        abstract void onCommand(Command command, boolean endOfBatch);
+        
+        void start() {
+            thread.start();
+        }
+        
+        void join() {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        
+        @Override
+        public void run() {
+            long next = cursor.get() + 1;
+            int idle = 0;
+            while (true) {
+                long last = available(next);
+                if (last < next) {
+                    if (drained(next)) {
+                        finished = true;
+                        return;
+                    }
+                    idle = backOff(idle);
+                    continue;
+                }
+                idle = 0;
+                for (long sequence = next; sequence <= last; sequence++) {
+                    onCommand(ring[(int) sequence & mask], sequence == last);
+                }
+                cursor.set(last);
+                next = last + 1;
+            }
+        }
+        
+        /**
+         * True once nothing from next on can still arrive: the engine is
+         * closing and every command before next was published (no caller
+         * is still inside publish), or the upstream stage has finished
+         * and this one has caught up with it. Checked in that order, so a
+         * command published just before the check is never missed
+         */
+        private boolean drained(long next) {
+            if (upstream != null) {
+                return upstream.finished && upstream.cursor.get() < next;
+            }
+            return !accepting && publishing.get() == 0 && claimed.get() < next;
+        }
+        
+        /**
+         * Highest sequence from next on that this stage may process
+         */
+        private long available(long next) {
+            if (upstream != null) {
+                return upstream.cursor.get();
+            }
+            long last = next - 1;
+            while (last - next < mask && published.get((int) (last + 1) & mask) == last + 1) {
+                last++;
+            }
+            return last;
+        }
+    }
+    
+    /**
+     * Journals each batch as one operation and acknowledges its callers
+     * once that operation is durable
+     * A batch the journal refuses outright is given back, and so is every
+     * command after it (see the class comment); a failure reported later,
+     * after the fsync, cannot be undone safely and only fails the futures
+     */
+    private final class JournalStage extends Stage {
+        private final List<Transaction> transactions = new ArrayList<>();
+        private final List<Command> commands = new ArrayList<>();
+        private final List<CompletableFuture<Boolean>> results = new ArrayList<>();
+        private final List<Boolean> outcomes = new ArrayList<>();
+        private Throwable refused;
+        
+        JournalStage() {
+            super("sequencer-journal", business);
+        }
+        
+        @Override
+        void onCommand(Command command, boolean endOfBatch) {
+            if (refused != null) {
+                // Applied on balances that included the refused batch
+                giveBack(command);
+                command.result.completeExceptionally(refused);
+            } else if (command.failure != null) {
+                command.result.completeExceptionally(command.failure);
+            } else {
+                Collections.addAll(transactions, command.transactions);
+                commands.add(command);
+                results.add(command.result);
+                outcomes.add(command.succeeded);
+            }
+            if (endOfBatch) {
+                flush();
+            }
+        }
+        
+        private void flush() {
+            if (results.isEmpty()) {
+                return;
+            }
+            final List<CompletableFuture<Boolean>> batchResults = new ArrayList<>(results);
+            final List<Boolean> batchOutcomes = new ArrayList<>(outcomes);
+            CompletableFuture<Long> durable = transactions.isEmpty()
+                    ? CompletableFuture.completedFuture(null)
+                    : service.logTransactions(transactions.toArray(NONE));
+            if (durable.isCompletedExceptionally()) {
+                refuse(durable);
+            }
+            transactions.clear();
+            commands.clear();
+            results.clear();
+            outcomes.clear();
+            durable.whenComplete((lsn, error) -> {
+                for (int i = 0; i < batchResults.size(); i++) {
+                    if (error != null) {
+                        batchResults.get(i).completeExceptionally(error);
+                    } else {
+                        batchResults.get(i).complete(batchOutcomes.get(i));
+                    }
+                }
+            });
+        }
+        
+        /**
+         * Stop the engine and give back the batch the journal refused;
+         * its slots are still held, as the cursor has not passed them
+         */
+        private void refuse(CompletableFuture<Long> durable) {
+            try {
+                durable.join();
+            } catch (CompletionException e) {
+                refused = e.getCause();
+            } catch (RuntimeException e) {
+                refused = e;
+            }
+            accepting = false;
+            System.out.println("Error: Journal refused a batch, sequencer stopped - " + refused.getMessage());
+            for (Command command : commands) {
+                giveBack(command);
+            }
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.banking.service;
+
+import com.banking.model.*;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * StatementWriter - Writes an account statement row by row to a channel
+ * Each row is built in one reused StringBuilder (dates through one shared
+ * DateTimeFormatter, amounts digit by digit from cents), encoded into one
+ * reused buffer and written when the buffer is full, so memory use does
+ * not depend on the number of rows. Closing writes the rest and closes
+ * the channel.
+ */
+public class StatementWriter implements Closeable {
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final int BUFFER_BYTES = 64 * 1024;
+    
+    // Fixed-width columns: date, id, type, amount, balance, description
+    private static final int[] WIDTHS = { 19, 22, 12, 15, 15, 40 };
+    private static final boolean[] RIGHT_ALIGNED = { false, false, false, true, true, false };
+    private static final String[] HEADINGS = { "Date", "Transaction ID", "Type", "Amount", "Balance", "Description" };
+    private static final char[] SPACES = " ".repeat(64).toCharArray();
+    
+    private final WritableByteChannel channel;
+    private final StatementFormat format;
+    private final StringBuilder line;
+    private final ByteBuffer buffer;
+    private final CharsetEncoder encoder;
+    private long rowCount;
+    
+    public StatementWriter(WritableByteChannel channel, StatementFormat format) {
+        this.channel = channel;
+        this.format = format;
+        this.line = new StringBuilder(256);
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+        this.encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+    
+    /**
+     * Title and column headings (CSV: the header row only)
+     * from and to may be null for an open range
+     */
+    public void writeHeader(Account account, LocalDateTime from, LocalDateTime to) throws IOException {
+        if (format == StatementFormat.CSV) {
+            for (int column = 0; column < HEADINGS.length; column++) {
+                if (column > 0) {
+                    line.append(',');
+                }
+                line.append(HEADINGS[column]);
+            }
+            writeLine();
+            return;
+        }
+        line.append("Statement for ").append(account.getAccountHolderName())
+            .append(" (").append(account.getAccountNumber()).append("), ");
+        if (from == null) {
+            line.append("start");
+        } else {
+            DATE_FORMAT.formatTo(from, line);
+        }
+        line.append(" to ");
+        if (to == null) {
+            line.append("now");
+        } else {
+            DATE_FORMAT.formatTo(to, line);
+        }
+        writeLine();
+        for (int column = 0; column < HEADINGS.length; column++) {
+            int start = startColumn(column);
+            line.append(HEADINGS[column]);
+            pad(column, start);
+        }
+        writeLine();
+        writeRule();
+    }
+    
+    public void write(Transaction transaction) throws IOException {
+        if (format == StatementFormat.CSV) {
+            DATE_FORMAT.formatTo(transaction.getTimestamp(), line);
+            line.append(',');
+            appendId(transaction);
+            line.append(',');
+            appendCsv(transaction.getTransactionType());
+            line.append(',');
+            appendAmount(Money.toCents(transaction.getAmount()));
+            line.append(',');
+            appendAmount(Money.toCents(transaction.getBalanceAfter()));
+            line.append(',');
+            appendCsv(transaction.getDescription());
+        } else {
+            int start = startColumn(0);
+            DATE_FORMAT.formatTo(transaction.getTimestamp(), line);
+            pad(0, start);
+            start = startColumn(1);
+            appendId(transaction);
+            pad(1, start);
+            start = startColumn(2);
+            line.append(transaction.getTransactionType());
+            pad(2, start);
+            start = startColumn(3);
+            appendAmount(Money.toCents(transaction.getAmount()));
+            pad(3, start);
+            start = startColumn(4);
+            appendAmount(Money.toCents(transaction.getBalanceAfter()));
+            pad(4, start);
+            start = startColumn(5);
+            line.append(transaction.getDescription());
+            pad(5, start);
+        }
+        writeLine();
+        rowCount++;
+    }
+    
+    /**
+     * Transactions written so far
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+    
+    /**
+     * Write the total line (fixed width) and anything still buffered,
+     * then close the channel
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (format == StatementFormat.FIXED_WIDTH) {
+                writeRule();
+                line.append("Total Transactions: ").append(rowCount);
+                writeLine();
+            }
+            encoder.encode(CharBuffer.allocate(0), buffer, true);
+            encoder.flush(buffer);
+            drain();
+        } finally {
+            channel.close();
+        }
+    }
+    
+    /**
+     * Separate a column from the previous one; returns where it starts
+     */
+    private int startColumn(int column) {
+        if (column > 0) {
+            line.append(' ');
+        }
+        return line.length();
+    }
+    
+    /**
+     * Bring the column started at start to its width: cut off what is
+     * too long, fill the rest with spaces (before the value if it is
+     * right-aligned); the last column is not filled
+     */
+    private void pad(int column, int start) {
+        int width = WIDTHS[column];
+        int length = line.length() - start;
+        if (length > width) {
+            line.setLength(start + width);
+        } else if (RIGHT_ALIGNED[column]) {
+            line.insert(start, SPACES, 0, width - length);
+        } else if (column < WIDTHS.length - 1) {
+            line.append(SPACES, 0, width - length);
+        }
+    }
+    
+    private void writeRule() throws IOException {
+        int width = WIDTHS.length - 1;
+        for (int column = 0; column < WIDTHS.length; column++) {
+            width += WIDTHS[column];
+        }
+        for (int i = 0; i < width; i++) {
+            line.append('-');
+        }
+        writeLine();
+    }
+    
+    private void appendId(Transaction transaction) {
+        long number = transaction.getTransactionNumber();
+        if (number != Transaction.NO_NUMBER) {
+            Transaction.appendTransactionId(line, number);
+        } else {
+            line.append(transaction.getTransactionId());
+        }
+    }
+    
+    /**
+     * Cents as an amount with exactly two decimals, e.g. -12.05
+     */
+    private void appendAmount(long cents) {
+        if (cents < 0) {
+            line.append('-');
+        }
+        long whole = Math.abs(cents / 100);
+        long fraction = Math.abs(cents % 100);
+        line.append(whole).append(fraction < 10 ? ".0" : ".").append(fraction);
+    }
+    
+    /**
+     * A CSV field, quoted when it holds a comma, quote or line break
+     */
+    private void appendCsv(String value) {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            line.append(value);
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                line.append('"');
+            }
+            line.append(c);
+        }
+        line.append('"');
+    }
+    
+    /**
+     * Encode the line into the buffer, writing the buffer out whenever it fills
+     */
+    private void writeLine() throws IOException {
+        line.append('\n');
+        CharBuffer chars = CharBuffer.wrap(line);
+        while (encoder.encode(chars, buffer, false).isOverflow()) {
+            drain();
+        }
+        line.setLength(0);
+    }
+    
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,46 @@
+package com.banking.service;
+
+import com.banking.persistence.IdReservation;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ThreadBlockIdGenerator - Ids issued from per-thread blocks
+ * A thread claims BLOCK_SIZE ids from the shared counter at a time and
+ * hands them out from a thread-local range, so most calls touch no
+ * shared memory at all. Best with a fixed pool of long-lived threads;
+ * short-lived (e.g. virtual) threads each burn most of a block.
+ */
+public class ThreadBlockIdGenerator implements TransactionIdGenerator {
+    private static final int BLOCK_SIZE = 1024;
+    
+    private final AtomicLong nextBlock;
+    private final IdReservation reservation;
+    private final ThreadLocal<long[]> range;
+    
+    public ThreadBlockIdGenerator(IdReservation reservation) {
+        this.reservation = reservation;
+        this.nextBlock = new AtomicLong(reservation.getReserved() + 1);
+        // {next id, end of block (exclusive)}
+        this.range = ThreadLocal.withInitial(() -> new long[2]);
+    }
+    
+    @Override
+    public long nextId() {
+        long[] block = range.get();
+        if (block[0] == block[1]) {
+            long start = nextBlock.getAndAdd(BLOCK_SIZE);
+            long end = start + BLOCK_SIZE;
+            if (end - 1 > reservation.getReserved()) {
+                reservation.reserveThrough(end - 1, (long) BLOCK_SIZE * 16);
+            }
+            block[0] = start;
+            block[1] = end;
+        }
+        return block[0]++;
+    }
+    
+    @Override
+    public long lastIssued() {
+        return nextBlock.get() - 1;
+    }
+}
@@ -0,0 +1,54 @@
+package com.banking.service;
+
+import com.banking.persistence.IdReservation;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * TimeOrderedIdGenerator - 64-bit ids that sort by creation time
+ * Layout: milliseconds since 2024-01-01 UTC (43 bits, good for ~278
+ * years) followed by a 20-bit sequence within the millisecond. Each id
+ * is the larger of "now" and the previous id + 1, set by compare-and-set,
+ * so ids stay strictly increasing even if the clock steps back or a
+ * millisecond runs out of sequence numbers.
+ */
+public class TimeOrderedIdGenerator implements TransactionIdGenerator {
+    private static final long EPOCH_MILLIS = 1704067200000L;
+    private static final int SEQUENCE_BITS = 20;
+    // Reserve about a second of ids at a time
+    private static final long RESERVE_AHEAD = 1000L << SEQUENCE_BITS;
+    
+    private final AtomicLong last;
+    private final IdReservation reservation;
+    
+    public TimeOrderedIdGenerator(IdReservation reservation) {
+        this.reservation = reservation;
+        this.last = new AtomicLong(reservation.getReserved());
+    }
+    
+    @Override
+    public long nextId() {
+        long id;
+        long previous;
+        do {
+            previous = last.get();
+            long now = (System.currentTimeMillis() - EPOCH_MILLIS) << SEQUENCE_BITS;
+            id = Math.max(now, previous + 1);
+        } while (!last.compareAndSet(previous, id));
+        if (id > reservation.getReserved()) {
+            reservation.reserveThrough(id, RESERVE_AHEAD);
+        }
+        return id;
+    }
+    
+    @Override
+    public long lastIssued() {
+        return last.get();
+    }
+    
+    /**
+     * Creation time encoded in an id, epoch milliseconds
+     */
+    public static long timestampOf(long id) {
+        return (id >>> SEQUENCE_BITS) + EPOCH_MILLIS;
+    }
+}
@@ -0,0 +1,17 @@
+package com.banking.service;
+
+/**
+ * TransactionIdGenerator - Source of numeric transaction ids
+ * Ids are plain longs; Transaction renders them as text only for display
+ */
+public interface TransactionIdGenerator {
+    /**
+     * Next unused id; safe to call from any number of threads without locking
+     */
+    long nextId();
+    
+    /**
+     * Highest id handed out so far (or reserved for a caller)
+     */
+    long lastIssued();
+}